@@ -0,0 +1,63 @@
+#!/bin/bash
+# Live balance streams (SSE): a committed top-up reaches an open stream, then a soak with many idle streams
+# Usage: ./benchmarkBalanceStream.sh [connections] [users] [hold_seconds] [changes]
+# connections / users must stay within WALLET_BALANCE_STREAM_MAX_PER_USER (default 16).
+# Run with statement counting off (WALLET_QUERY_BUDGET_ENABLED=false, the default): its JDBC proxies add to every statement.
+
+CONNECTIONS=${1:-10000}
+USERS=${2:-1000}
+HOLD=${3:-30}
+CHANGES=${4:-200}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+APP_CONTAINER=${APP_CONTAINER:-wallet-app}
+
+echo "======================================================================"
+echo "📡 BALANCE STREAMS | connections=$CONNECTIONS | users=$USERS | hold=${HOLD}s | changes=$CHANGES"
+echo "======================================================================"
+
+curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null || { echo "❌ service not reachable at $BASE_URL"; exit 1; }
+
+echo ""
+echo "1. A committed top-up is pushed to an open stream"
+USER_ID=$(curl -s "$BASE_URL/api/v1/test/users" | jq -r '.data[0].id')
+STREAM=$(mktemp)
+curl -sN --max-time 5 -H "Accept: text/event-stream" "$BASE_URL/api/v1/wallets/$USER_ID/balances/stream" > "$STREAM" &
+CURL=$!
+sleep 1
+written=$(curl -s -X POST "$BASE_URL/api/v1/wallets/topup" -H "Content-Type: application/json" \
+    -d "{\"userId\":\"$USER_ID\",\"assetCode\":\"GOLD\",\"amount\":1,\"idempotencyKey\":\"stream-$(date +%s%N)\"}" \
+    | jq -r '.data.newBalance')
+wait $CURL
+events=$(grep -c '^event:balances' "$STREAM")
+pushed=$(grep '^data:' "$STREAM" | tail -1 | cut -c6- \
+    | jq -r '.balances[] | select(.assetCode == "GOLD") | .balance')
+rm -f "$STREAM"
+echo "   events: $events (initial + change) | pushed GOLD: $pushed | top-up returned: $written"
+if [ "$events" -ge 2 ] && [ "$pushed" = "$written" ]; then
+    echo "   ✅ change pushed"
+else
+    echo "   ❌ change not pushed"
+    FAILED=1
+fi
+
+echo ""
+echo "2. Soak: $CONNECTIONS idle streams, then $CHANGES changes"
+# Peak container memory while the soak runs
+PEAK_FILE=$(mktemp)
+( while true; do
+      docker stats --no-stream --format '{{.MemUsage}}' "$APP_CONTAINER" 2>/dev/null | cut -d/ -f1 >> "$PEAK_FILE"
+      sleep 2
+  done ) &
+SAMPLER=$!
+
+( cd "$(dirname "$0")/benchmarks" || exit 1
+  mvn -B -q package -DskipTests || exit 1
+  mvn -B -q exec:exec@streams -Dstreams.args="--base-url $BASE_URL --connections $CONNECTIONS --users $USERS --hold $HOLD --changes $CHANGES" )
+kill $SAMPLER 2>/dev/null
+
+echo "Container memory (RSS) samples: first $(head -1 "$PEAK_FILE") | last $(tail -1 "$PEAK_FILE") | peak $(sort -h "$PEAK_FILE" | tail -1)"
+rm -f "$PEAK_FILE"
+echo "Closed streams by reason: curl -s $BASE_URL/actuator/prometheus | grep wallet_balance_stream_closed"
+
+echo ""
+[ -z "$FAILED" ] && echo "✅ balance streams OK" || { echo "❌ balance stream checks failed"; exit 1; }
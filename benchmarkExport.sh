@@ -0,0 +1,42 @@
+#!/bin/bash
+# Streaming export benchmark: throughput and server heap while exporting a time range
+# Usage: ./benchmarkExport.sh [dataset] [from] [to] [format] [gzip]
+# Example: ./benchmarkExport.sh LEDGER 2026-01-01T00:00:00 2027-01-01T00:00:00 NDJSON true
+# Run with statement counting off (WALLET_QUERY_BUDGET_ENABLED=false, the default): its JDBC proxies add to every statement.
+
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+DATASET=${1:-LEDGER}
+FROM=${2:-"2000-01-01T00:00:00"}
+TO=${3:-"2100-01-01T00:00:00"}
+FORMAT=${4:-NDJSON}
+GZIP=${5:-false}
+OUT=${OUT:-/dev/null}
+
+echo "======================================================================"
+echo "📦 EXPORT BENCHMARK | dataset=$DATASET | format=$FORMAT | gzip=$GZIP"
+echo "======================================================================"
+
+heap_used_mb() {
+    curl -s "$BASE_URL/actuator/metrics/jvm.memory.used?tag=area:heap" \
+        | grep -o '"value":[0-9.E+]*' | head -1 | cut -d: -f2 | awk '{printf "%.0f", $1 / 1048576}'
+}
+
+# Sample heap once a second while the export runs
+SAMPLES=$(mktemp)
+( while true; do heap_used_mb >> "$SAMPLES"; echo >> "$SAMPLES"; sleep 1; done ) &
+SAMPLER=$!
+
+echo "Heap before: $(heap_used_mb) MB"
+curl -s -o "$OUT" \
+    -w "HTTP %{http_code} | bytes=%{size_download} | seconds=%{time_total} | bytesPerSec=%{speed_download}\n" \
+    "$BASE_URL/api/v1/exports/$DATASET?from=$FROM&to=$TO&format=$FORMAT&gzip=$GZIP"
+
+kill $SAMPLER 2>/dev/null
+wait $SAMPLER 2>/dev/null
+echo "Heap after:  $(heap_used_mb) MB"
+echo "Heap peak while exporting: $(grep -v '^$' "$SAMPLES" | sort -n | tail -1) MB"
+rm -f "$SAMPLES"
+
+echo ""
+echo "Rows and rows/sec: see the 'Export done' line in the service log"
+echo "Counters: $BASE_URL/actuator/metrics/wallet.export.rows"
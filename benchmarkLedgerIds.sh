@@ -0,0 +1,75 @@
+#!/bin/bash
+# Primary key benchmark: random UUIDv4 vs time-ordered UUIDv7 on a ledger-shaped table
+# Usage: ./benchmarkLedgerIds.sh [preload_rows] [insert_rows]
+# Runs against scratch tables in the wallet DB; the service's own tables are untouched.
+
+PRELOAD_ROWS=${1:-20000000}
+INSERT_ROWS=${2:-1000000}
+PSQL=${PSQL:-"docker exec -i wallet-db psql -U postgres -d wallet -v ON_ERROR_STOP=1 -q"}
+
+echo "======================================================================"
+echo "🔑 LEDGER PRIMARY KEY BENCHMARK | preload=$PRELOAD_ROWS | insert=$INSERT_ROWS"
+echo "======================================================================"
+
+run_sql() {
+    $PSQL -c "$1"
+}
+
+now_ms() {
+    date +%s%3N
+}
+
+# UUIDv7 in SQL (PostgreSQL 16 has no uuidv7()): 48-bit ms timestamp over a v4 UUID, version nibble 4 -> 7
+run_sql "
+CREATE EXTENSION IF NOT EXISTS pgstattuple;
+CREATE OR REPLACE FUNCTION bench_uuid_v7(ts timestamptz) RETURNS uuid AS \$\$
+    SELECT encode(set_bit(set_bit(overlay(uuid_send(gen_random_uuid())
+        PLACING substring(int8send(floor(extract(epoch FROM ts) * 1000)::bigint) FROM 3) FROM 1 FOR 6),
+        52, 1), 53, 1), 'hex')::uuid
+\$\$ LANGUAGE sql VOLATILE;"
+
+for variant in v4 v7; do
+    table="bench_ledger_$variant"
+    if [ "$variant" = "v4" ]; then
+        id_expr="gen_random_uuid()"
+    else
+        # One ID per microsecond of synthetic time, i.e. ~1000 rows share each millisecond prefix
+        id_expr="bench_uuid_v7(clock_timestamp() + g * interval '1 microsecond')"
+    fi
+
+    echo ""
+    echo "📊 $variant"
+    echo "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━"
+    run_sql "DROP TABLE IF EXISTS $table;
+        CREATE TABLE $table (
+            id uuid PRIMARY KEY,
+            wallet_transaction_id uuid NOT NULL,
+            wallet_id uuid NOT NULL,
+            amount numeric(19,4) NOT NULL,
+            balance_after numeric(19,4) NOT NULL,
+            created_at timestamp NOT NULL
+        );"
+
+    start=$(now_ms)
+    run_sql "INSERT INTO $table
+        SELECT $id_expr, gen_random_uuid(), gen_random_uuid(), 1, g, now()
+        FROM generate_series(1, $PRELOAD_ROWS) g;"
+    echo "Preload: $(( $(now_ms) - start )) ms"
+
+    run_sql "CHECKPOINT; VACUUM ANALYZE $table;"
+
+    # Steady-state appends into the already large index: the part random keys make expensive
+    start=$(now_ms)
+    run_sql "EXPLAIN (ANALYZE, BUFFERS, COSTS OFF, SUMMARY OFF)
+        INSERT INTO $table
+        SELECT $id_expr, gen_random_uuid(), gen_random_uuid(), 1, g, now()
+        FROM generate_series($PRELOAD_ROWS + 1, $PRELOAD_ROWS + $INSERT_ROWS) g;" | grep -E "Buffers|Insert on"
+    echo "Insert of $INSERT_ROWS rows: $(( $(now_ms) - start )) ms"
+
+    run_sql "SELECT pg_size_pretty(pg_relation_size('${table}_pkey')) AS pk_index_size,
+            avg_leaf_density, leaf_fragmentation
+        FROM pgstatindex('${table}_pkey');"
+done
+
+echo ""
+echo "Cleanup: DROP TABLE bench_ledger_v4, bench_ledger_v7; DROP FUNCTION bench_uuid_v7(timestamptz);"
@@ -0,0 +1,27 @@
+#!/bin/bash
+# Load scenarios: runs every named scenario of the Java load generator at the same arrival rate
+# Usage: ./benchmarkLoad.sh [rate] [duration_seconds] [users]
+# Expects the service on BASE_URL (docker compose up); reports land in benchmarks/target/load/
+# Run with statement counting off (WALLET_QUERY_BUDGET_ENABLED=false, the default): its JDBC proxies add to every statement.
+
+RATE=${1:-200}
+DURATION=${2:-60}
+USERS=${3:-50}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+SCENARIOS=${SCENARIOS:-"UNIFORM HOT_USER TREASURY_HOTSPOT INSUFFICIENT_FUNDS"}
+
+echo "======================================================================"
+echo "🔥 LOAD SCENARIOS | rate=$RATE/s | duration=${DURATION}s | users=$USERS"
+echo "======================================================================"
+
+curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null || { echo "❌ service not reachable at $BASE_URL"; exit 1; }
+
+cd "$(dirname "$0")/benchmarks" || exit 1
+mvn -B -q package -DskipTests || exit 1
+
+for scenario in $SCENARIOS; do
+    echo ""
+    echo "📊 $scenario"
+    echo "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━"
+    mvn -B -q exec:exec@load -Dload.args="--scenario $scenario --base-url $BASE_URL --rate $RATE --duration $DURATION --users $USERS"
+done
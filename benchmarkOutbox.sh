@@ -0,0 +1,103 @@
+#!/bin/bash
+# Outbox relay benchmark: change events of a UNIFORM load, relayed to the NDJSON file sink
+# Usage: ./benchmarkOutbox.sh [rate] [duration_seconds] [users]
+# Needs WALLET_OUTBOX_ENABLED=true (and no WALLET_ENGINE_ASSETS: engine batches write no outbox events).
+# Reports relay throughput, backlog and lag, then checks every committed transfer was delivered, in order per wallet.
+# Run with statement counting off (WALLET_QUERY_BUDGET_ENABLED=false, the default): its JDBC proxies add to every statement.
+
+RATE=${1:-1000}
+DURATION=${2:-60}
+USERS=${3:-50}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+PSQL=${PSQL:-"docker exec -i wallet-db psql -U postgres -d wallet -Atq"}
+EVENTS_FILE=${EVENTS_FILE:-"$(dirname "$0")/logs/balance-events.jsonl"}
+
+echo "======================================================================"
+echo "📬 OUTBOX RELAY BENCHMARK | rate=$RATE/s | duration=${DURATION}s | users=$USERS"
+echo "======================================================================"
+
+curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null || { echo "❌ service not reachable at $BASE_URL"; exit 1; }
+
+metric() {
+    curl -s "$BASE_URL/actuator/metrics/$1${2:+?tag=$2}" \
+        | jq -r "[.measurements[]? | select(.statistic == \"${3:-COUNT}\") | .value][0] // 0"
+}
+
+backlog() {
+    $PSQL -c "SELECT count(*) FROM wallet_outbox"
+}
+
+successes() {
+    $PSQL -c "SELECT count(*) FROM wallet_transactions WHERE status = 'SUCCESS'"
+}
+
+wakeups_before=$(metric wallet.outbox.wakeups)
+sleep 3
+[ "$(echo "$(metric wallet.outbox.wakeups) > $wakeups_before" | bc)" = "1" ] \
+    || { echo "❌ outbox relay is off: WALLET_OUTBOX_ENABLED=true docker compose up -d"; exit 1; }
+[ -f "$EVENTS_FILE" ] || { echo "❌ no file sink output at $EVENTS_FILE (WALLET_OUTBOX_FILE_PATH)"; exit 1; }
+
+lines_before=$(wc -l < "$EVENTS_FILE")
+successes_before=$(successes)
+relayed_before=$(metric wallet.outbox.relayed)
+lag_count_before=$(metric wallet.outbox.lag "" COUNT)
+lag_total_before=$(metric wallet.outbox.lag "" TOTAL_TIME)
+
+# Largest backlog seen while the load runs
+PEAK_FILE=$(mktemp)
+echo 0 > "$PEAK_FILE"
+( while true; do
+      current=$(backlog)
+      [ "${current:-0}" -gt "$(cat "$PEAK_FILE")" ] && echo "$current" > "$PEAK_FILE"
+      sleep 1
+  done ) &
+SAMPLER=$!
+
+started=$(date +%s%3N)
+( cd "$(dirname "$0")/benchmarks" || exit 1
+  mvn -B -q package -DskipTests || exit 1
+  mvn -B -q exec:exec@load -Dload.args="--scenario UNIFORM --base-url $BASE_URL --rate $RATE --duration $DURATION --users $USERS" ) || { kill $SAMPLER; exit 1; }
+load_done=$(date +%s%3N)
+
+# Drain time after the last request
+for _ in $(seq 1 120); do
+    [ "$(backlog)" = "0" ] && break
+    sleep 0.5
+done
+drained=$(date +%s%3N)
+kill $SAMPLER 2>/dev/null
+
+relayed=$(echo "$(metric wallet.outbox.relayed) - $relayed_before" | bc | cut -d. -f1)
+elapsed_ms=$(( drained - started ))
+lag_count=$(echo "$(metric wallet.outbox.lag "" COUNT) - $lag_count_before" | bc)
+lag_mean_ms=$(echo "scale=1; ($(metric wallet.outbox.lag "" TOTAL_TIME) - $lag_total_before) * 1000 / ($lag_count + 0.0001)" | bc)
+
+echo ""
+echo "Events relayed:      $relayed in ${elapsed_ms} ms ($(( relayed * 1000 / (elapsed_ms > 0 ? elapsed_ms : 1) )) events/s)"
+echo "Drain after load:    $(( drained - load_done )) ms | backlog now $(backlog) | peak $(cat "$PEAK_FILE")"
+echo "Lag (mean / max):    ${lag_mean_ms} ms / $(echo "$(metric wallet.outbox.lag "" MAX) * 1000" | bc) ms"
+echo "Batch size (mean):   $(echo "scale=1; $(metric wallet.outbox.batch.size "" TOTAL) / ($(metric wallet.outbox.batch.size) + 0.0001)" | bc)"
+echo "Wake-ups:            notify=$(metric wallet.outbox.wakeups source:notify) | poll=$(metric wallet.outbox.wakeups source:poll)"
+echo "Publish failures:    $(metric wallet.outbox.publish.failures)"
+rm -f "$PEAK_FILE"
+
+NEW_EVENTS=$(mktemp)
+tail -n +"$(( lines_before + 1 ))" "$EVENTS_FILE" > "$NEW_EVENTS"
+
+committed=$(( $(successes) - successes_before ))
+delivered=$(jq -r '.transactionId' "$NEW_EVENTS" | sort -u | wc -l)
+# In file order, skipping redelivered ids: every wallet's event ids must only grow
+out_of_order=$(jq -n 'reduce inputs as $e ({last: {}, seen: {}, bad: 0};
+    if .seen[$e.id | tostring] then . else
+        .seen[$e.id | tostring] = true
+        | reduce ($e.sourceWalletId, $e.targetWalletId) as $w (.;
+            if (.last[$w] // -1) > $e.id then .bad += 1 else .last[$w] = $e.id end)
+    end) | .bad' "$NEW_EVENTS")
+rm -f "$NEW_EVENTS"
+
+echo ""
+echo "Committed transfers: $committed | delivered: $delivered | out of order: $out_of_order"
+[ "$delivered" -ge "$committed" ] && echo "✅ every committed transfer delivered" \
+    || { echo "❌ $(( committed - delivered )) transfers missing from the sink"; FAILED=1; }
+[ "$out_of_order" = "0" ] && echo "✅ per-wallet order kept" || { echo "❌ events out of order"; FAILED=1; }
+[ -z "$FAILED" ] || exit 1
@@ -0,0 +1,146 @@
+#!/bin/bash
+# Partitioning benchmark: one heap table vs monthly range partitions on a transaction-shaped table
+# Usage: ./benchmarkPartitions.sh [preload_rows] [insert_rows] [months]
+# Runs against scratch tables in the wallet DB; the service's own tables are untouched.
+
+PRELOAD_ROWS=${1:-20000000}
+INSERT_ROWS=${2:-1000000}
+MONTHS=${3:-24}
+LOOKUPS=${LOOKUPS:-10000}
+PSQL=${PSQL:-"docker exec -i wallet-db psql -U postgres -d wallet -v ON_ERROR_STOP=1 -q"}
+
+echo "======================================================================"
+echo "🗂  PARTITION BENCHMARK | preload=$PRELOAD_ROWS | insert=$INSERT_ROWS | months=$MONTHS"
+echo "======================================================================"
+
+run_sql() {
+    $PSQL -c "$1"
+}
+
+now_ms() {
+    date +%s%3N
+}
+
+# Rows arrive in time order over the last $MONTHS months, 100k users, one key per row
+ROW_SELECT="SELECT gen_random_uuid(),
+        ('00000000-0000-0000-0000-' || lpad(to_hex(g % 100000), 12, '0'))::uuid,
+        1, 'SUCCESS', 'key-' || g,
+        date_trunc('month', now()) - interval '$MONTHS months'
+            + (g::float8 / $PRELOAD_ROWS) * (now() - (date_trunc('month', now()) - interval '$MONTHS months'))"
+
+run_sql "DROP TABLE IF EXISTS bench_tx_heap, bench_tx_part, bench_tx_keys CASCADE;
+    CREATE TABLE bench_tx_heap (
+        id uuid PRIMARY KEY,
+        user_id uuid NOT NULL,
+        amount numeric(19,4) NOT NULL,
+        status varchar(16) NOT NULL,
+        idempotency_key varchar(255) UNIQUE,
+        created_at timestamp NOT NULL
+    );
+    CREATE INDEX ON bench_tx_heap (user_id, created_at, id);
+
+    CREATE TABLE bench_tx_part (
+        id uuid NOT NULL,
+        user_id uuid NOT NULL,
+        amount numeric(19,4) NOT NULL,
+        status varchar(16) NOT NULL,
+        idempotency_key varchar(255),
+        created_at timestamp NOT NULL,
+        PRIMARY KEY (id, created_at)
+    ) PARTITION BY RANGE (created_at);
+    CREATE INDEX ON bench_tx_part (user_id, created_at, id);
+    CREATE TABLE bench_tx_keys (
+        idempotency_key varchar(255) PRIMARY KEY,
+        transaction_id uuid NOT NULL,
+        created_at timestamp NOT NULL
+    );
+    CREATE OR REPLACE FUNCTION bench_claim_key() RETURNS trigger AS \$\$
+    BEGIN
+        INSERT INTO bench_tx_keys VALUES (NEW.idempotency_key, NEW.id, NEW.created_at);
+        RETURN NULL;
+    END
+    \$\$ LANGUAGE plpgsql;
+    CREATE TRIGGER bench_claim_key AFTER INSERT ON bench_tx_part FOR EACH ROW EXECUTE FUNCTION bench_claim_key();
+
+    DO \$\$
+    DECLARE m date := date_trunc('month', now())::date - interval '$MONTHS months';
+    BEGIN
+        WHILE m <= date_trunc('month', now())::date + interval '1 month' LOOP
+            EXECUTE format('CREATE TABLE bench_tx_part_%s PARTITION OF bench_tx_part FOR VALUES FROM (%L) TO (%L)',
+                to_char(m, 'YYYY_MM'), m, m + interval '1 month');
+            m := m + interval '1 month';
+        END LOOP;
+    END
+    \$\$;"
+
+for variant in heap part; do
+    table="bench_tx_$variant"
+    echo ""
+    echo "📊 $variant"
+    echo "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━"
+
+    start=$(now_ms)
+    run_sql "INSERT INTO $table $ROW_SELECT FROM generate_series(1, $PRELOAD_ROWS) g;"
+    echo "Preload: $(( $(now_ms) - start )) ms"
+    run_sql "CHECKPOINT; VACUUM ANALYZE $table;"
+    [ "$variant" = "part" ] && run_sql "VACUUM ANALYZE bench_tx_keys;"
+
+    # Steady-state appends at the current time: only the newest partition's indexes are touched
+    start=$(now_ms)
+    run_sql "INSERT INTO $table
+        SELECT gen_random_uuid(), ('00000000-0000-0000-0000-' || lpad(to_hex(g % 100000), 12, '0'))::uuid,
+               1, 'SUCCESS', 'key-' || g, now()
+        FROM generate_series($PRELOAD_ROWS + 1, $PRELOAD_ROWS + $INSERT_ROWS) g;"
+    echo "Insert of $INSERT_ROWS rows: $(( $(now_ms) - start )) ms"
+
+    if [ "$variant" = "heap" ]; then
+        lookup="SELECT status FROM bench_tx_heap WHERE idempotency_key = key"
+    else
+        # As IdempotencyGuard does it: the key row's created_at prunes to one partition
+        lookup="SELECT t.status FROM bench_tx_keys k
+            JOIN bench_tx_part t ON t.id = k.transaction_id AND t.created_at = k.created_at
+            WHERE k.idempotency_key = key"
+    fi
+    start=$(now_ms)
+    run_sql "DO \$\$
+        DECLARE key text; s text;
+        BEGIN
+            FOR i IN 1..$LOOKUPS LOOP
+                key := 'key-' || (1 + floor(random() * $PRELOAD_ROWS))::bigint;
+                $lookup INTO s;
+            END LOOP;
+        END
+        \$\$;"
+    echo "Idempotency lookups ($LOOKUPS random keys): $(( $(now_ms) - start )) ms"
+    run_sql "EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) ${lookup/= key/= 'key-42'};" | grep -E "Execution Time|Buffers: shared" | head -2
+
+    # A history page a year back, cursor-bounded as TransactionHistoryRepository does it
+    run_sql "EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+        SELECT id, amount, status, created_at FROM $table
+        WHERE user_id = '00000000-0000-0000-0000-000000000042'
+        AND created_at <= now() - interval '12 months'
+        AND (created_at, id) < (now() - interval '12 months', 'ffffffff-ffff-ffff-ffff-ffffffffffff')
+        ORDER BY created_at DESC, id DESC LIMIT 50;" | grep -E "Execution Time|Buffers: shared|Subplans Removed" | head -3
+
+    if [ "$variant" = "heap" ]; then
+        run_sql "SELECT pg_size_pretty(pg_total_relation_size('bench_tx_heap')) AS total_size;"
+    else
+        run_sql "SELECT pg_size_pretty(sum(pg_total_relation_size(inhrelid))
+                    + pg_total_relation_size('bench_tx_keys')) AS total_size
+            FROM pg_inherits WHERE inhparent = 'bench_tx_part'::regclass;"
+    fi
+
+    # Retention: removing the oldest month
+    oldest="date_trunc('month', now()) - interval '$MONTHS months'"
+    start=$(now_ms)
+    if [ "$variant" = "heap" ]; then
+        run_sql "DELETE FROM bench_tx_heap WHERE created_at < $oldest + interval '1 month';"
+    else
+        old_partition=$($PSQL -At -c "SELECT 'bench_tx_part_' || to_char($oldest, 'YYYY_MM');")
+        run_sql "ALTER TABLE bench_tx_part DETACH PARTITION $old_partition; DROP TABLE $old_partition;"
+    fi
+    echo "Drop oldest month: $(( $(now_ms) - start )) ms"
+done
+
+echo ""
+echo "Cleanup: DROP TABLE bench_tx_heap, bench_tx_part, bench_tx_keys; DROP FUNCTION bench_claim_key();"
@@ -0,0 +1,97 @@
+#!/bin/bash
+# Startup benchmark: default image vs -Pfast-startup (Spring AOT + AppCDS)
+# Usage: ./benchmarkStartup.sh [restarts]
+# Rebuilds and recreates the app container for each build, with statement counting
+# (WALLET_QUERY_BUDGET_ENABLED) off; the database is kept.
+# Per restart: time from "docker compose start" to the first 200 from /health, the JVM's own
+# startup time, the seeding time and the RSS of the java process right after /health answers.
+
+RESTARTS=${1:-5}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+APP_CONTAINER=${APP_CONTAINER:-wallet-app}
+
+echo "======================================================================"
+echo "🚀 STARTUP BENCHMARK | restarts=$RESTARTS per build"
+echo "======================================================================"
+
+now_ms() {
+    date +%s%3N
+}
+
+wait_healthy() {
+    for _ in $(seq 1 1200); do
+        curl -sf -o /dev/null "$BASE_URL/api/v1/wallets/health" && return 0
+        sleep 0.05
+    done
+    return 1
+}
+
+java_rss_mb() {
+    docker exec "$APP_CONTAINER" sh -c 'for p in /proc/[0-9]*; do
+        [ "$(cat $p/comm 2>/dev/null)" = java ] && awk "/VmRSS/ {print int(\$2 / 1024)}" $p/status; done'
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+run_build() {
+    local profile=$1 label=${1:-default}
+    echo ""
+    echo "Build: $label"
+    MAVEN_PROFILES=$profile docker compose build -q app || exit 1
+    MAVEN_PROFILES=$profile WALLET_QUERY_BUDGET_ENABLED=false docker compose up -d --force-recreate app >/dev/null 2>&1 || exit 1
+    wait_healthy || { echo "   ❌ app did not become healthy"; exit 1; }
+
+    # First start of an image is the AppCDS training run: the archive is written when the JVM exits
+    if [ -n "$profile" ]; then
+        docker compose stop app >/dev/null 2>&1
+        docker compose start app >/dev/null 2>&1
+        wait_healthy || { echo "   ❌ app did not become healthy"; exit 1; }
+        docker exec "$APP_CONTAINER" test -s /app/cds/wallet.jsa \
+            && echo "   AppCDS archive: $(docker exec "$APP_CONTAINER" du -h /app/cds/wallet.jsa | cut -f1)" \
+            || echo "   ⚠️  no AppCDS archive in /app/cds"
+    fi
+
+    HEALTH_FILE=$(mktemp); JVM_FILE=$(mktemp); SEED_FILE=$(mktemp); RSS_FILE=$(mktemp)
+    for i in $(seq 1 "$RESTARTS"); do
+        docker compose stop app >/dev/null 2>&1
+        since=$(date -u +%Y-%m-%dT%H:%M:%S)
+        started=$(now_ms)
+        docker compose start app >/dev/null 2>&1
+        wait_healthy || { echo "   ❌ app did not become healthy"; exit 1; }
+        healthy=$(( $(now_ms) - started ))
+        rss=$(java_rss_mb)
+        # Seeding runs after the web server is up: wait for its log line
+        for _ in $(seq 1 100); do
+            docker logs --since "$since" "$APP_CONTAINER" 2>&1 | grep -q "Data initialization complete" && break
+            sleep 0.1
+        done
+        logs=$(docker logs --since "$since" "$APP_CONTAINER" 2>&1)
+        jvm=$(echo "$logs" | grep -o "Started WalletServiceApplication in [0-9.]* seconds" | grep -o "[0-9.]*" | head -1)
+        seed=$(echo "$logs" | grep -o "Data initialization complete in [0-9]* ms" | grep -o "[0-9]*" | head -1)
+        echo "   #$i: /health after ${healthy} ms | Spring ${jvm:-?} s | seeding ${seed:-?} ms | RSS ${rss:-?} MB"
+        echo "$healthy" >> "$HEALTH_FILE"
+        echo "$jvm" | awk '{ print int($1 * 1000) }' >> "$JVM_FILE"
+        echo "${seed:-0}" >> "$SEED_FILE"
+        echo "${rss:-0}" >> "$RSS_FILE"
+    done
+
+    RESULTS+=("$(printf "%-14s | %8s ms | %8s ms | %8s ms | %6s MB" "$label" \
+        "$(median < "$HEALTH_FILE")" "$(median < "$JVM_FILE")" "$(median < "$SEED_FILE")" "$(median < "$RSS_FILE")")")
+    rm -f "$HEALTH_FILE" "$JVM_FILE" "$SEED_FILE" "$RSS_FILE"
+}
+
+RESULTS=()
+run_build ""
+run_build "fast-startup"
+
+echo ""
+echo "Medians over $RESTARTS restarts:"
+printf "%-14s | %11s | %11s | %11s | %9s\n" "build" "/health" "Spring" "seeding" "RSS"
+printf '%s\n' "${RESULTS[@]}"
+
+# Leave the default build running
+echo ""
+docker compose build -q app && docker compose up -d --force-recreate app >/dev/null 2>&1
+echo "✅ done (default build restored)"
@@ -0,0 +1,64 @@
+#!/bin/bash
+# Thread-mode benchmark: platform vs virtual request threads under a spend burst
+# Usage: ./benchmarkThreadModes.sh [spend_requests] [read_requests] [concurrency]
+# Restarts the app container once per mode; balance-read latency is what the bulkheads protect.
+# Statement counting (WALLET_QUERY_BUDGET_ENABLED) is kept off so its JDBC proxies are not measured.
+
+SPENDS=${1:-5000}
+READS=${2:-2000}
+CONCURRENCY=${3:-400}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+
+echo "======================================================================"
+echo "🧵 THREAD MODE BENCHMARK | spends=$SPENDS | reads=$READS | concurrency=$CONCURRENCY"
+echo "======================================================================"
+
+wait_ready() {
+    for _ in $(seq 1 60); do
+        curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null && return 0
+        sleep 2
+    done
+    echo "❌ service did not come up" && exit 1
+}
+
+# Reads "seconds" lines on stdin, prints count / p50 / p99 / max in ms
+percentiles() {
+    sort -n | awk '{ v[NR] = $1 * 1000 } END {
+        if (NR == 0) { print "   no samples"; exit }
+        printf "   n=%d | p50=%.1fms | p99=%.1fms | max=%.1fms\n", NR, v[int(NR * 0.50) + 1], v[int(NR * 0.99) + 1], v[NR]
+    }'
+}
+
+for mode in false true; do
+    echo ""
+    echo "📊 virtual threads = $mode"
+    echo "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━"
+    SPRING_THREADS_VIRTUAL_ENABLED=$mode WALLET_QUERY_BUDGET_ENABLED=false docker compose up -d --force-recreate app >/dev/null 2>&1
+    wait_ready
+
+    USER_ID=$(curl -s "$BASE_URL/api/v1/test/users" | jq -r '.data[0].id')
+    RUN=$(date +%s%N)
+
+    # Spends mostly fail for insufficient funds: cheap for the DB, but they hold request threads
+    STARTED=$(date +%s%N)
+    seq 1 "$SPENDS" | xargs -P "$CONCURRENCY" -I{} curl -s -o /dev/null -w "%{time_total}\n" \
+        -X POST "$BASE_URL/api/v1/wallets/spend" -H 'Content-Type: application/json' \
+        -d "{\"userId\":\"$USER_ID\",\"assetCode\":\"GOLD\",\"amount\":1,\"reference\":\"bench\",\"idempotencyKey\":\"tm-$RUN-{}\"}" \
+        > /tmp/tm_spend_$mode.txt &
+    SPEND_PID=$!
+
+    sleep 1
+    seq 1 "$READS" | xargs -P 20 -I{} curl -s -o /dev/null -w "%{time_total}\n" \
+        "$BASE_URL/api/v1/wallets/$USER_ID/balances" > /tmp/tm_read_$mode.txt
+    wait $SPEND_PID
+    ELAPSED_MS=$(( ($(date +%s%N) - STARTED) / 1000000 ))
+
+    echo "   spends:"
+    percentiles < /tmp/tm_spend_$mode.txt
+    echo "   balance reads during the burst:"
+    percentiles < /tmp/tm_read_$mode.txt
+    echo "   throughput: $(( (SPENDS + READS) * 1000 / ELAPSED_MS )) req/s"
+    echo "   bulkhead rejections: $(curl -s "$BASE_URL/actuator/metrics/wallet.bulkhead.rejections" | jq -r '.measurements[0].value // 0')"
+done
+
+docker compose up -d --force-recreate app >/dev/null 2>&1
@@ -0,0 +1,50 @@
+#!/bin/bash
+# Player-to-player benchmark: opposing GOLD transfers between the same two users (A->B and B->A)
+# Usage: ./benchmarkTransfers.sh [rate] [duration_seconds]
+# Runs the P2P_PING_PONG load scenario, then checks Postgres deadlocks and that the pair's total is unchanged.
+# Run with statement counting off (WALLET_QUERY_BUDGET_ENABLED=false, the default): its JDBC proxies add to every statement.
+
+RATE=${1:-500}
+DURATION=${2:-60}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+PSQL=${PSQL:-"docker exec -i wallet-db psql -U postgres -d wallet -Atq"}
+
+echo "======================================================================"
+echo "🤝 P2P TRANSFER BENCHMARK | rate=$RATE/s | duration=${DURATION}s"
+echo "======================================================================"
+
+curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null || { echo "❌ service not reachable at $BASE_URL"; exit 1; }
+
+deadlocks() {
+    $PSQL -c "SELECT deadlocks FROM pg_stat_database WHERE datname = 'wallet'"
+}
+
+# GOLD held by the first two users (the pair P2P_PING_PONG uses)
+pair_total() {
+    local total=0
+    for user in $(curl -s "$BASE_URL/api/v1/test/users" | jq -r '.data[0:2][].id'); do
+        balance=$(curl -s "$BASE_URL/api/v1/wallets/$user/balances" \
+            | jq -r '[.data.balances[] | select(.assetCode == "GOLD") | .balance][0] // 0')
+        total=$(echo "$total + $balance" | bc)
+    done
+    echo "$total"
+}
+
+FUNDING=1000
+deadlocks_before=$(deadlocks)
+total_before=$(pair_total)
+
+cd "$(dirname "$0")/benchmarks" || exit 1
+mvn -B -q package -DskipTests || exit 1
+mvn -B -q exec:exec@load -Dload.args="--scenario P2P_PING_PONG --base-url $BASE_URL --rate $RATE --duration $DURATION --users 2 --initial-balance $FUNDING"
+
+# Transfers only move GOLD inside the pair: the total grows by the generator's funding alone
+expected=$(echo "$total_before + 2 * $FUNDING" | bc)
+total_after=$(pair_total)
+
+echo ""
+echo "Deadlocks detected by Postgres: $(( $(deadlocks) - deadlocks_before ))"
+echo "Pair total: $total_before + funding -> $total_after (expected $expected)"
+echo "Lock wait per transfer: curl -s $BASE_URL/actuator/prometheus | grep 'wallet_transfer_stage.*pair_lock'"
+[ "$(echo "$total_after == $expected" | bc)" = "1" ] && echo "✅ no money created or lost" \
+    || { echo "❌ pair total changed"; exit 1; }
@@ -0,0 +1,49 @@
+package com.dinoventures.wallet.bench;
+
+import com.dinoventures.wallet.dto.ApiResponse;
+import com.dinoventures.wallet.dto.TopUpResponse;
+import com.dinoventures.wallet.dto.UserAssetBalance;
+import com.dinoventures.wallet.dto.UserBalancesResponse;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Response bodies as Spring MVC writes them (Jackson 3, the Spring Boot 4 default)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    private JsonMapper mapper;
+    private ApiResponse<TopUpResponse> topUp;
+    private ApiResponse<UserBalancesResponse> balances;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonMapper.builder().build();
+        topUp = ApiResponse.success("Top-up successful", new TopUpResponse(
+                UUID.randomUUID(), UUID.randomUUID().toString(), "GOLD",
+                new BigDecimal("25.00"), "SUCCESS", new BigDecimal("1025.00")));
+        balances = ApiResponse.success("User balances retrieved", new UserBalancesResponse(
+                UUID.randomUUID().toString(), List.of(
+                        new UserAssetBalance("GOLD", new BigDecimal("1025.00")),
+                        new UserAssetBalance("DIAMONDS", new BigDecimal("40.00")))));
+    }
+
+    @Benchmark
+    public byte[] serializeTopUp() {
+        return mapper.writeValueAsBytes(topUp);
+    }
+
+    @Benchmark
+    public byte[] serializeBalances() {
+        return mapper.writeValueAsBytes(balances);
+    }
+}
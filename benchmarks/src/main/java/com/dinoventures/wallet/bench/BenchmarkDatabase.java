@@ -0,0 +1,60 @@
+package com.dinoventures.wallet.bench;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Postgres for the end-to-end benchmarks.
+ *
+ * -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/wallet (plus bench.jdbc.user / bench.jdbc.password)
+ * points at an existing instance, e.g. the docker-compose one; otherwise an embedded
+ * Postgres is started in a temp directory and stopped with the trial.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private BenchmarkDatabase(EmbeddedPostgres embedded, String url, String user, String password) {
+        this.embedded = embedded;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public static BenchmarkDatabase start() {
+        String url = System.getProperty("bench.jdbc.url");
+        if (url != null) {
+            return new BenchmarkDatabase(null, url,
+                    System.getProperty("bench.jdbc.user", "postgres"),
+                    System.getProperty("bench.jdbc.password", "postgres"));
+        }
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            return new BenchmarkDatabase(postgres,
+                    postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                    "postgres", "postgres");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start embedded Postgres", e);
+        }
+    }
+
+    public String[] springProperties() {
+        return new String[]{
+                "spring.datasource.url=" + url,
+                "spring.datasource.username=" + user,
+                "spring.datasource.password=" + password
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
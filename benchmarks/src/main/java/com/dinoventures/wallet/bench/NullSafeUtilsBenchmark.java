@@ -0,0 +1,57 @@
+package com.dinoventures.wallet.bench;
+
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Helpers that run several times on every request (validation and log arguments)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NullSafeUtilsBenchmark {
+
+    private String validUuid;
+    private String invalidUuid;
+    private BigDecimal amount;
+    private Object value;
+
+    @Setup
+    public void setUp() {
+        validUuid = UUID.randomUUID().toString();
+        invalidUuid = "not-a-uuid-" + validUuid;
+        amount = new BigDecimal("125.50");
+        value = new BigDecimal("9876.54");
+    }
+
+    @Benchmark
+    public UUID parseValidUuid() {
+        return NullSafeUtils.safeParseUUID(validUuid);
+    }
+
+    // Exception path: the cost a malformed userId pays
+    @Benchmark
+    public UUID parseInvalidUuid() {
+        return NullSafeUtils.safeParseUUID(invalidUuid);
+    }
+
+    @Benchmark
+    public String safeToString() {
+        return NullSafeUtils.safeToString(value);
+    }
+
+    @Benchmark
+    public BigDecimal safeToPositiveBigDecimal() {
+        return NullSafeUtils.safeToPositiveBigDecimal(amount);
+    }
+
+    @Benchmark
+    public boolean isNullOrEmpty() {
+        return NullSafeUtils.isNullOrEmpty(validUuid);
+    }
+}
@@ -0,0 +1,110 @@
+package com.dinoventures.wallet.bench;
+
+import com.dinoventures.wallet.WalletServiceApplication;
+import com.dinoventures.wallet.dto.TopUpRequest;
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.repository.UserRepository;
+import com.dinoventures.wallet.repository.WalletRepository;
+import com.dinoventures.wallet.service.ReferenceDataCache;
+import com.dinoventures.wallet.service.SystemWalletRouter;
+import com.dinoventures.wallet.service.TransactionProcessor;
+import com.dinoventures.wallet.service.TransferResult;
+import com.dinoventures.wallet.service.WalletService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransactionProcessor.processTransfer end to end: the transfer statement, the commit
+ * and the idempotency bookkeeping, against a real Postgres (see BenchmarkDatabase).
+ * Each thread tops up its own user wallet from the sharded treasury; run with -t N
+ * to add contention on the treasury shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ProcessTransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private TransactionProcessor transactionProcessor;
+    private SystemWalletRouter systemWalletRouter;
+    private AssetType asset;
+    private final String runId = UUID.randomUUID().toString();
+    private final AtomicLong keys = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        database = BenchmarkDatabase.start();
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(database.springProperties())
+                .properties(
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "spring.sql.init.mode=never",
+                        "wallet.system-wallets.shards=8",
+                        "logging.level.root=WARN")
+                .run();
+
+        transactionProcessor = context.getBean(TransactionProcessor.class);
+        systemWalletRouter = context.getBean(SystemWalletRouter.class);
+        asset = context.getBean(ReferenceDataCache.class).findAsset("GOLD").orElseThrow();
+
+        // Enough treasury on every shard that no iteration ever hits insufficient funds
+        context.getBean(JdbcTemplate.class).update(
+                "UPDATE wallets SET balance = 1000000000000 WHERE owner_user_id IS NULL AND wallet_type = 'TREASURY'");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        database.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+
+        User user;
+        Wallet wallet;
+
+        // Each benchmark thread gets its own user and USER wallet (created through a real top-up)
+        @Setup(Level.Trial)
+        public void create(ProcessTransferBenchmark bench) {
+            user = bench.context.getBean(UserRepository.class).save(User.builder()
+                    .name("bench-" + Thread.currentThread().getName())
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            bench.context.getBean(WalletService.class).topUp(new TopUpRequest(
+                    user.getId().toString(), "GOLD", AMOUNT, bench.runId + "-" + user.getId()));
+            wallet = bench.context.getBean(WalletRepository.class)
+                    .findByOwnerUserAndAssetTypeAndWalletType(user, bench.asset, "USER")
+                    .orElseThrow();
+        }
+    }
+
+    @Benchmark
+    public TransferResult topUp(Player player) {
+        List<Wallet> treasury = systemWalletRouter.route(asset, "TREASURY", player.user);
+        return transactionProcessor.processTransfer("TOP_UP", treasury, player.wallet, AMOUNT,
+                runId + "-" + keys.incrementAndGet(), player.user, asset, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,154 @@
+package com.dinoventures.wallet.load;
+
+import com.dinoventures.wallet.load.Scenario.Request;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the /api/v1/wallets endpoints of a running instance
+ * (docker compose up). Arrivals are issued on a fixed schedule whatever the response
+ * times are, so a slow server builds up in-flight requests instead of silently
+ * lowering the offered load. See LoadOptions for the command line and Scenario for
+ * the traffic shapes.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final LoadOptions options;
+    private final HttpClient client;
+    private final JsonMapper mapper = JsonMapper.builder().build();
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadGenerator(LoadOptions options, HttpClient client) {
+        this.options = options;
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        LoadGenerator generator = new LoadGenerator(options, client);
+
+        List<String> users = generator.prepareUsers();
+        System.out.printf("Prepared %d users | scenario=%s | warmup %ds%n",
+                users.size(), options.scenario(), options.warmup().toSeconds());
+        generator.run(users, options.warmup(), new LoadReport(options));
+
+        LoadReport report = new LoadReport(options);
+        generator.run(users, options.duration(), report);
+        report.print(System.out);
+        Path written = report.write();
+        System.out.println("Report written to " + written);
+        System.exit(0);
+    }
+
+    // Makes sure `users` users exist (via /api/v1/test/setup) and funds each one on both assets
+    List<String> prepareUsers() throws Exception {
+        List<String> users = listUsers();
+        while (users.size() < options.users()) {
+            send(HttpRequest.newBuilder(uri("/api/v1/test/setup"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build());
+            users = listUsers();
+        }
+        users = List.copyOf(users.subList(0, options.users()));
+
+        if (options.initialBalance() > 0) {
+            for (String userId : users) {
+                for (String asset : List.of("GOLD", "DIAMONDS")) {
+                    Request funding = Request.topUp(userId, asset, options.initialBalance(),
+                            "load-fund-" + runId + "-" + userId + "-" + asset);
+                    HttpResponse<String> response = send(toHttp(funding));
+                    if (response.statusCode() >= 300) {
+                        throw new IllegalStateException("Funding " + userId + " failed: " + response.body());
+                    }
+                }
+            }
+        }
+        return users;
+    }
+
+    private List<String> listUsers() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/v1/test/users")).GET().build());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode user : mapper.readTree(response.body()).path("data")) {
+            ids.add(user.path("id").asString());
+        }
+        return ids;
+    }
+
+    // Issues arrivals at the target rate for `duration`, then waits for the stragglers
+    void run(List<String> users, Duration duration, LoadReport report) throws InterruptedException {
+        int maxInFlight = options.maxInFlight();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * 1_000_000_000L / options.rate();
+            if (scheduled >= end) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Request request = options.scenario().next(users, options, "load-" + runId + "-" + keys.incrementAndGet());
+            if (inFlight.get() >= maxInFlight) {
+                report.dropped(request.operation());
+                continue;
+            }
+            inFlight.incrementAndGet();
+            client.sendAsync(toHttp(request), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        report.record(request.operation(), error == null ? response.statusCode() : 0,
+                                System.nanoTime() - scheduled);
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        report.finish(System.nanoTime() - start);
+    }
+
+    private HttpRequest toHttp(Request request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(request.path())).timeout(REQUEST_TIMEOUT);
+        if (request.body() == null) {
+            return builder.GET().build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(request.body()))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create(options.baseUrl() + path);
+    }
+}
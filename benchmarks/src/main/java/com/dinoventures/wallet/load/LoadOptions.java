@@ -0,0 +1,68 @@
+package com.dinoventures.wallet.load;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line of the load generator, "--name value" pairs:
+ *
+ *   --scenario        UNIFORM | HOT_USER | TREASURY_HOTSPOT | INSUFFICIENT_FUNDS | P2P_PING_PONG
+ *                     (default UNIFORM)
+ *   --base-url        http://localhost:8080
+ *   --rate            arrivals per second, independent of response times (default 200)
+ *   --duration        measured seconds (default 60)
+ *   --warmup          seconds run before measuring, not reported (default 10)
+ *   --users           distinct users to spread traffic over (default 50)
+ *   --initial-balance per user and asset, topped up from TREASURY before the run (default 1000)
+ *   --fail-ratio      share of spends that exceed the balance in INSUFFICIENT_FUNDS (default 0.5)
+ *   --max-in-flight   requests outstanding before new arrivals are counted as dropped (default 10000)
+ *   --out             directory for the JSON report and .hgrm files (default target/load)
+ */
+public record LoadOptions(
+        Scenario scenario,
+        String baseUrl,
+        int rate,
+        Duration duration,
+        Duration warmup,
+        int users,
+        long initialBalance,
+        double failRatio,
+        int maxInFlight,
+        String outDir
+) {
+
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got: " + arg);
+            }
+            values.put(arg.substring(2), args[++i]);
+        }
+
+        LoadOptions options = new LoadOptions(
+                Scenario.valueOf(values.getOrDefault("scenario", "UNIFORM").toUpperCase()),
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Integer.parseInt(values.getOrDefault("users", "50")),
+                Long.parseLong(values.getOrDefault("initial-balance", "1000")),
+                Double.parseDouble(values.getOrDefault("fail-ratio", "0.5")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                values.getOrDefault("out", "target/load"));
+
+        if (options.rate <= 0 || options.users <= 0 || options.maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate, users and max-in-flight must be positive");
+        }
+        if (options.scenario == Scenario.P2P_PING_PONG && options.users < 2) {
+            throw new IllegalArgumentException("P2P_PING_PONG needs at least 2 users");
+        }
+        if (options.failRatio < 0 || options.failRatio > 1) {
+            throw new IllegalArgumentException("fail-ratio must be between 0 and 1");
+        }
+        return options;
+    }
+}
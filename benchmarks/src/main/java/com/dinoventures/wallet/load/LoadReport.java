@@ -0,0 +1,139 @@
+package com.dinoventures.wallet.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation latency histograms and outcome counters for one measured run.
+ *
+ * Latency is taken from the arrival's scheduled start, not from when the request
+ * actually went out, so time spent queued behind a slow server is counted
+ * (no coordinated omission). Values are microseconds, 3 significant digits.
+ */
+public class LoadReport {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadOptions options;
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private long elapsedNanos;
+
+    public LoadReport(LoadOptions options) {
+        this.options = options;
+    }
+
+    void record(String operation, int status, long latencyNanos) {
+        OperationStats stats = stats(operation);
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_TRACKABLE_MICROS));
+        if (status >= 200 && status < 300) {
+            stats.ok.increment();
+        } else if (status == 503) {
+            stats.busy.increment();
+        } else if (status >= 400 && status < 500) {
+            stats.rejected.increment();
+        } else {
+            // 5xx, or 0 for a transport error / timeout
+            stats.errors.increment();
+        }
+    }
+
+    void dropped(String operation) {
+        stats(operation).dropped.increment();
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    private OperationStats stats(String operation) {
+        return operations.computeIfAbsent(operation, key -> new OperationStats());
+    }
+
+    public void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%nScenario %s | target %d req/s | %d users | %.0fs measured%n",
+                options.scenario(), options.rate(), options.users(), seconds);
+        out.printf("%-20s %8s %8s %8s %6s %6s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "ok", "4xx", "503", "err", "drop", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        operations.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            OperationStats stats = entry.getValue();
+            Histogram h = stats.latency;
+            out.printf("%-20s %8d %8d %8d %6d %6d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey(), h.getTotalCount(), stats.ok.sum(), stats.rejected.sum(), stats.busy.sum(),
+                    stats.errors.sum(), stats.dropped.sum(),
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)),
+                    millis(h.getMaxValue()));
+        });
+        long total = operations.values().stream().mapToLong(s -> s.latency.getTotalCount()).sum();
+        out.printf("achieved %.1f req/s%n", seconds == 0 ? 0 : total / seconds);
+    }
+
+    // <out>/<scenario>-<timestamp>.json plus one .hgrm percentile distribution per operation
+    public Path write() throws IOException {
+        Path dir = Path.of(options.outDir());
+        Files.createDirectories(dir);
+        String prefix = options.scenario().name().toLowerCase() + "-"
+                + LocalDateTime.now().withNano(0).toString().replace(':', '-');
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            Histogram h = stats.latency;
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            for (double p : PERCENTILES) {
+                percentiles.put("p" + p, millis(h.getValueAtPercentile(p)));
+            }
+            percentiles.put("max", millis(h.getMaxValue()));
+            results.put(entry.getKey(), Map.of(
+                    "count", h.getTotalCount(),
+                    "ok", stats.ok.sum(),
+                    "rejected4xx", stats.rejected.sum(),
+                    "busy503", stats.busy.sum(),
+                    "errors", stats.errors.sum(),
+                    "dropped", stats.dropped.sum(),
+                    "latencyMillis", percentiles));
+
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(dir.resolve(prefix + "-" + entry.getKey() + ".hgrm")))) {
+                h.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", options.scenario().name());
+        report.put("targetRate", options.rate());
+        report.put("users", options.users());
+        report.put("measuredSeconds", elapsedNanos / 1e9);
+        report.put("operations", results);
+
+        Path json = dir.resolve(prefix + ".json");
+        JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(json.toFile(), report);
+        return json;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class OperationStats {
+        final Histogram latency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder busy = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+    }
+}
@@ -0,0 +1,117 @@
+package com.dinoventures.wallet.load;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Named traffic shapes. Each arrival is turned into one request; the operation name
+ * is what the report groups latencies by.
+ */
+public enum Scenario {
+
+    // Top-ups, bonuses, small spends and balance reads spread over all users and both assets
+    UNIFORM {
+        @Override
+        Request next(List<String> users, LoadOptions options, String key) {
+            return mixed(randomUser(users), randomAsset(), key);
+        }
+    },
+
+    // The same mix, all on one user: every write contends for the same user wallet rows
+    HOT_USER {
+        @Override
+        Request next(List<String> users, LoadOptions options, String key) {
+            return mixed(users.get(0), randomAsset(), key);
+        }
+    },
+
+    // Only GOLD top-ups: every transfer debits the GOLD TREASURY (and its shards, if any)
+    TREASURY_HOTSPOT {
+        @Override
+        Request next(List<String> users, LoadOptions options, String key) {
+            return Request.topUp(randomUser(users), "GOLD", 1, key);
+        }
+    },
+
+    // Spends only; fail-ratio of them ask for more than any user holds and are rejected
+    INSUFFICIENT_FUNDS {
+        @Override
+        Request next(List<String> users, LoadOptions options, String key) {
+            boolean fail = ThreadLocalRandom.current().nextDouble() < options.failRatio();
+            return fail
+                    ? Request.spend("spend_insufficient", randomUser(users), randomAsset(), 1_000_000_000_000L, key)
+                    : Request.spend("spend", randomUser(users), randomAsset(), 1, key);
+        }
+    },
+
+    // GOLD transfers between the first two users in both directions at once: every pair of
+    // opposing transfers would deadlock if the two wallets were not locked in a fixed order
+    P2P_PING_PONG {
+        @Override
+        Request next(List<String> users, LoadOptions options, String key) {
+            return ThreadLocalRandom.current().nextBoolean()
+                    ? Request.transfer("transfer_ab", users.get(0), users.get(1), "GOLD", 1, key)
+                    : Request.transfer("transfer_ba", users.get(1), users.get(0), "GOLD", 1, key);
+        }
+    };
+
+    private static final List<String> ASSETS = List.of("GOLD", "DIAMONDS");
+
+    abstract Request next(List<String> users, LoadOptions options, String key);
+
+    // 40% top-up, 20% bonus, 30% spend, 10% balance read
+    private static Request mixed(String userId, String asset, String key) {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        if (roll < 40) {
+            return Request.topUp(userId, asset, 5, key);
+        }
+        if (roll < 60) {
+            return Request.bonus(userId, asset, 2, key);
+        }
+        if (roll < 90) {
+            return Request.spend("spend", userId, asset, 1, key);
+        }
+        return Request.balances(userId);
+    }
+
+    private static String randomUser(List<String> users) {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    private static String randomAsset() {
+        return ASSETS.get(ThreadLocalRandom.current().nextInt(ASSETS.size()));
+    }
+
+    // body == null means GET
+    record Request(String operation, String path, String body) {
+
+        static Request topUp(String userId, String asset, long amount, String key) {
+            return new Request("topup", "/api/v1/wallets/topup", """
+                    {"userId":"%s","assetCode":"%s","amount":%d,"idempotencyKey":"%s"}"""
+                    .formatted(userId, asset, amount, key));
+        }
+
+        static Request bonus(String userId, String asset, long amount, String key) {
+            return new Request("bonus", "/api/v1/wallets/bonus", """
+                    {"userId":"%s","assetCode":"%s","amount":%d,"reason":"load","idempotencyKey":"%s"}"""
+                    .formatted(userId, asset, amount, key));
+        }
+
+        static Request spend(String operation, String userId, String asset, long amount, String key) {
+            return new Request(operation, "/api/v1/wallets/spend", """
+                    {"userId":"%s","assetCode":"%s","amount":%d,"reference":"load","idempotencyKey":"%s"}"""
+                    .formatted(userId, asset, amount, key));
+        }
+
+        static Request transfer(String operation, String fromUserId, String toUserId, String asset,
+                                long amount, String key) {
+            return new Request(operation, "/api/v1/wallets/transfer", """
+                    {"fromUserId":"%s","toUserId":"%s","assetCode":"%s","amount":%d,"reference":"load","idempotencyKey":"%s"}"""
+                    .formatted(fromUserId, toUserId, asset, amount, key));
+        }
+
+        static Request balances(String userId) {
+            return new Request("balances", "/api/v1/wallets/" + userId + "/balances", null);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.dinoventures.wallet.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Soak test of the balance streams (GET /api/v1/wallets/{userId}/balances/stream) of a
+ * running instance. Opens many streams, keeps them idle, then commits top-ups for
+ * distinct users and measures how long each change takes to reach every stream of its
+ * user. Each stream is read by one virtual thread. "--name value" pairs:
+ *
+ *   --base-url     http://localhost:8080
+ *   --connections  streams to open (default 10000); one client address runs out of
+ *                  ephemeral ports somewhere between 28k and 60k, so 100k+ needs several
+ *   --users        users the streams are spread over (default 1000); connections / users
+ *                  must stay within the server's WALLET_BALANCE_STREAM_MAX_PER_USER
+ *   --hold         seconds the streams stay idle before the changes (default 30)
+ *   --changes      top-ups committed while the streams are open (default 200)
+ */
+public class StreamSoak {
+
+    private static final int MAX_CONCURRENT_OPENS = 500;
+    private static final Duration OPEN_TIMEOUT = Duration.ofMinutes(5);
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final JsonMapper mapper = JsonMapper.builder().build();
+    private final ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final AtomicLong balanceEvents = new AtomicLong();
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong deliveries = new AtomicLong();
+    // user -> System.nanoTime of the top-up being waited for
+    private final Map<String, Long> changedAt = new ConcurrentHashMap<>();
+    private final Histogram pushLatencyMicros = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+    StreamSoak(String baseUrl, HttpClient client) {
+        this.baseUrl = baseUrl;
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int connections = Integer.parseInt(options.getOrDefault("connections", "10000"));
+        int userCount = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int hold = Integer.parseInt(options.getOrDefault("hold", "30"));
+        int changes = Integer.parseInt(options.getOrDefault("changes", "200"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        StreamSoak soak = new StreamSoak(options.getOrDefault("base-url", "http://localhost:8080"), client);
+
+        List<String> users = soak.prepareUsers(userCount);
+        System.out.printf("Server before: %s%n", soak.serverMetrics());
+
+        long openStarted = System.nanoTime();
+        soak.open(connections, users);
+        System.out.printf("Opened %d / %d streams in %d ms (%d failed)%n", soak.opened.get(), connections,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openStarted), soak.failed.get());
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(hold));
+        System.out.printf("Idle %ds | server: %s | heartbeats received: %d | closed by server: %d%n",
+                hold, soak.serverMetrics(), soak.heartbeats.get(), soak.closed.get());
+
+        long expected = soak.change(users, changes, connections);
+        soak.report(expected);
+        System.exit(0);
+    }
+
+    List<String> prepareUsers(int count) throws Exception {
+        List<String> users = listUsers();
+        while (users.size() < count) {
+            client.send(HttpRequest.newBuilder(uri("/api/v1/test/setup"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+            users = listUsers();
+        }
+        return List.copyOf(users.subList(0, count));
+    }
+
+    // Stream i belongs to users[i % users]; at most MAX_CONCURRENT_OPENS handshakes at a time
+    void open(int connections, List<String> users) throws InterruptedException {
+        Semaphore handshakes = new Semaphore(MAX_CONCURRENT_OPENS);
+        for (int i = 0; i < connections; i++) {
+            String userId = users.get(i % users.size());
+            handshakes.acquire();
+            readers.execute(() -> read(userId, handshakes));
+        }
+        long deadline = System.nanoTime() + OPEN_TIMEOUT.toNanos();
+        while (opened.get() + failed.get() < connections && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    private void read(String userId, Semaphore handshakes) {
+        boolean released = false;
+        try {
+            HttpResponse<Stream<String>> response = client.send(
+                    HttpRequest.newBuilder(uri("/api/v1/wallets/" + userId + "/balances/stream"))
+                            .header("Accept", "text/event-stream").GET().build(),
+                    HttpResponse.BodyHandlers.ofLines());
+            handshakes.release();
+            released = true;
+            if (response.statusCode() != 200) {
+                failed.incrementAndGet();
+                response.body().close();
+                return;
+            }
+            opened.incrementAndGet();
+            try (Stream<String> lines = response.body()) {
+                lines.forEach(line -> onLine(userId, line));
+            }
+            closed.incrementAndGet();
+        } catch (Exception e) {
+            if (!released) {
+                failed.incrementAndGet();
+            } else {
+                closed.incrementAndGet();
+            }
+        } finally {
+            if (!released) {
+                handshakes.release();
+            }
+        }
+    }
+
+    private void onLine(String userId, String line) {
+        if (line.startsWith(":")) {
+            heartbeats.incrementAndGet();
+        } else if (line.startsWith("event:balances")) {
+            balanceEvents.incrementAndGet();
+            Long started = changedAt.get(userId);
+            if (started != null) {
+                deliveries.incrementAndGet();
+                pushLatencyMicros.recordValue(Math.min(pushLatencyMicros.getHighestTrackableValue(),
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started)));
+            }
+        }
+    }
+
+    // One top-up per distinct user (so a late event is never timed against a newer change);
+    // returns the deliveries expected: every stream of every changed user
+    long change(List<String> users, int changes, int connections) throws Exception {
+        List<String> shuffled = new ArrayList<>(users);
+        Collections.shuffle(shuffled);
+        long expected = 0;
+        for (int i = 0; i < Math.min(changes, shuffled.size()); i++) {
+            String userId = shuffled.get(i);
+            int userIndex = users.indexOf(userId);
+            expected += connections / users.size() + (userIndex < connections % users.size() ? 1 : 0);
+            changedAt.put(userId, System.nanoTime());
+            String body = "{\"userId\":\"" + userId + "\",\"assetCode\":\"GOLD\",\"amount\":1,"
+                    + "\"idempotencyKey\":\"soak-" + UUID.randomUUID() + "\"}";
+            client.send(HttpRequest.newBuilder(uri("/api/v1/wallets/topup"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.discarding());
+            Thread.sleep(20);
+        }
+        Thread.sleep(3000);
+        return expected;
+    }
+
+    void report(long expected) throws Exception {
+        System.out.printf("%nChanges delivered: %d of %d expected stream events%n", deliveries.get(), expected);
+        System.out.printf("Push latency (commit request -> event on stream), ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                pushLatencyMicros.getValueAtPercentile(50) / 1000.0,
+                pushLatencyMicros.getValueAtPercentile(90) / 1000.0,
+                pushLatencyMicros.getValueAtPercentile(99) / 1000.0,
+                pushLatencyMicros.getMaxValue() / 1000.0);
+        System.out.printf("Events received: balances=%d heartbeats=%d | streams closed by server: %d%n",
+                balanceEvents.get(), heartbeats.get(), closed.get());
+        System.out.printf("Server after: %s%n", serverMetrics());
+    }
+
+    private String serverMetrics() throws Exception {
+        return "streams=" + metric("wallet.balance.stream.connections", "VALUE")
+                + " | liveThreads=" + metric("jvm.threads.live", "VALUE")
+                + " | heapUsedMb=" + (long) (metric("jvm.memory.used?tag=area:heap", "VALUE") / (1 << 20))
+                + " | coalesced=" + metric("wallet.balance.stream.coalesced", "COUNT");
+    }
+
+    private double metric(String name, String statistic) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/actuator/metrics/" + name)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        for (JsonNode measurement : mapper.readTree(response.body()).path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asString())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    private List<String> listUsers() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/api/v1/test/users")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode user : mapper.readTree(response.body()).path("data")) {
+            ids.add(user.path("id").asString());
+        }
+        return ids;
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+}
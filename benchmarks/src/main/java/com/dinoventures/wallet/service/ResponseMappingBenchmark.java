@@ -0,0 +1,59 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.dto.BonusResponse;
+import com.dinoventures.wallet.dto.SpendResponse;
+import com.dinoventures.wallet.dto.TopUpResponse;
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.WalletTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Same package as WalletService: the mapTo*Response methods are package-private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private WalletTransaction transaction;
+    private BigDecimal newBalance;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        transaction = WalletTransaction.builder()
+                .id(UUID.randomUUID())
+                .transactionType("TOP_UP")
+                .user(User.builder().id(UUID.randomUUID()).name("bench").createdAt(now).build())
+                .assetType(AssetType.builder().id(UUID.randomUUID()).code("GOLD").displayName("Gold Coins").createdAt(now).build())
+                .amount(new BigDecimal("25.00"))
+                .status("SUCCESS")
+                .idempotencyKey("bench-key")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        newBalance = new BigDecimal("1025.00");
+    }
+
+    @Benchmark
+    public TopUpResponse mapTopUp() {
+        return WalletService.mapToTopUpResponse(transaction, newBalance);
+    }
+
+    @Benchmark
+    public BonusResponse mapBonus() {
+        return WalletService.mapToBonusResponse(transaction, newBalance);
+    }
+
+    @Benchmark
+    public SpendResponse mapSpend() {
+        return WalletService.mapToSpendResponse(transaction, newBalance);
+    }
+}
@@ -0,0 +1,3 @@
+#!/bin/sh
+# Runs once, when the primary's data directory is initialized: lets the replica stream WAL
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,69 @@
+package com.dinoventures.wallet.cli;
+
+import com.dinoventures.wallet.service.LedgerExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * CLI mode of the export: writes one dataset to a file and exits.
+ *
+ * java -jar app.jar --spring.main.web-application-type=none \
+ *      --wallet.export.cli.enabled=true --wallet.export.cli.dataset=LEDGER \
+ *      --wallet.export.cli.from=2026-01-01T00:00 --wallet.export.cli.to=2026-02-01T00:00 \
+ *      --wallet.export.cli.file=/tmp/ledger.ndjson.gz --wallet.export.cli.gzip=true
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "wallet.export.cli.enabled", havingValue = "true")
+public class ExportCommand implements ApplicationRunner {
+
+    private final LedgerExportService ledgerExportService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${wallet.export.cli.dataset:LEDGER}")
+    private String dataset;
+
+    @Value("${wallet.export.cli.format:NDJSON}")
+    private String format;
+
+    @Value("${wallet.export.cli.from}")
+    private String from;
+
+    @Value("${wallet.export.cli.to}")
+    private String to;
+
+    @Value("${wallet.export.cli.file}")
+    private Path file;
+
+    @Value("${wallet.export.cli.gzip:false}")
+    private boolean gzip;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            LedgerExportService.ExportStats stats = ledgerExportService.export(
+                    dataset, format, LocalDateTime.parse(from), LocalDateTime.parse(to), gzip, out);
+            log.info("Export written | file={} | rows={} | bytes={} | elapsedMs={}",
+                    file, stats.rows(), stats.bytes(), stats.elapsedMillis());
+        } catch (Exception e) {
+            log.error("Export failed | file={} | error={}", file, e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,20 @@
+package com.dinoventures.wallet.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.transaction.autoconfigure.TransactionManagerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+
+@Configuration
+@ConditionalOnProperty(name = "wallet.group-commit.enabled", havingValue = "true")
+public class GroupCommitConfig {
+
+    // In group-commit mode a rejected transfer is rolled back to its own savepoint;
+    // it must not mark the shared batch transaction rollback-only on its way out.
+    // Outermost transactions still roll back on any exception as before.
+    @Bean
+    public TransactionManagerCustomizer<AbstractPlatformTransactionManager> groupCommitTransactionManagerCustomizer() {
+        return transactionManager -> transactionManager.setGlobalRollbackOnParticipationFailure(false);
+    }
+}
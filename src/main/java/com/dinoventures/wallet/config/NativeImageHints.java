@@ -0,0 +1,43 @@
+package com.dinoventures.wallet.config;
+
+import com.dinoventures.wallet.dto.BulkBonusItem;
+import com.dinoventures.wallet.entity.TimeOrderedIdAlgorithm;
+import com.dinoventures.wallet.logging.RingBufferAppender;
+import com.dinoventures.wallet.logging.SampledRequestTurboFilter;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+// Classes created by reflection outside Spring (Hibernate's @UuidGenerator algorithm,
+// logback-spring.xml components, bulk items read off the stream by BulkBonusService) and
+// the JDBC proxies of StatementCountingDataSource: registered for the native image (-Pnative)
+@Configuration
+@ImportRuntimeHints(NativeImageHints.Registrar.class)
+public class NativeImageHints {
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : new Class<?>[]{TimeOrderedIdAlgorithm.class, RingBufferAppender.class,
+                    SampledRequestTurboFilter.class}) {
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BulkBonusItem.class);
+            for (Class<?> jdbcType : new Class<?>[]{Connection.class, Statement.class,
+                    PreparedStatement.class, CallableStatement.class}) {
+                hints.proxies().registerJdkProxy(jdbcType);
+            }
+            hints.resources().registerPattern("logback-spring.xml");
+        }
+    }
+}
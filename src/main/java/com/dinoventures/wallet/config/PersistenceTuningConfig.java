@@ -0,0 +1,65 @@
+package com.dinoventures.wallet.config;
+
+import com.dinoventures.wallet.logging.StatementCountingDataSource;
+import com.dinoventures.wallet.utils.Ids;
+import com.dinoventures.wallet.utils.UuidV7Generator;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+@Slf4j
+@Configuration
+public class PersistenceTuningConfig {
+
+    public static final String IDS_UUID_V7 = "UUID_V7";
+    public static final String IDS_RANDOM = "RANDOM";
+
+    @Value("${wallet.ids.generator:" + IDS_UUID_V7 + "}")
+    private String idGenerator;
+
+    // RANDOM keeps the old v4 behaviour around for comparison runs
+    @PostConstruct
+    void selectIdGenerator() {
+        switch (idGenerator.toUpperCase()) {
+            case IDS_UUID_V7 -> Ids.use(new UuidV7Generator());
+            case IDS_RANDOM -> Ids.use(UUID::randomUUID);
+            default -> throw new IllegalStateException("Unknown wallet.ids.generator: " + idGenerator
+                    + " (expected " + IDS_UUID_V7 + " or " + IDS_RANDOM + ")");
+        }
+        log.info("Primary key generator: {}", idGenerator);
+    }
+
+    // IDs are assigned in the JVM (no DB round trip), so Hibernate can group inserts
+    // into JDBC batches; explicit spring.jpa.properties.* values still take precedence
+    @Bean
+    public HibernatePropertiesCustomizer insertBatchingCustomizer(
+            @Value("${wallet.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+
+    // Per-request statement counts for QueryBudgetFilter, taken at the JDBC layer: wraps the
+    // application DataSource (the pool, or the replica routing proxy) before anything uses it
+    @Bean
+    public static BeanPostProcessor statementCountingDataSource(
+            @Value("${wallet.query-budget.enabled:false}") boolean enabled) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return enabled && "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        ? new StatementCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.dinoventures.wallet.config;
+
+import com.dinoventures.wallet.service.ReadRouting;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Primary / read-replica datasources, active when wallet.datasource.replica.url is set.
+ *
+ * The application sees one DataSource: a lazy proxy that only fetches a physical
+ * connection at the first statement, once the transaction's read-only flag is known.
+ * Read-write work uses the primary pool; read-only transactions (balances, history,
+ * exports) use the replica pool unless ReadRouting pins the thread to the primary.
+ * Work outside a transaction (schema setup, reconciliation, the balance engine's
+ * loads) is not read-only and stays on the primary.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "wallet.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("wallet.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${wallet.datasource.replica.url}") String url,
+            @Value("${wallet.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${wallet.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName(REPLICA);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                 @Qualifier("replicaDataSource") HikariDataSource replica,
+                                 MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource readOnly = new ReplicaRoutingDataSource(meterRegistry);
+        readOnly.setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        readOnly.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(readOnly);
+        log.info("Read replica routing enabled | replica={}", replica.getJdbcUrl());
+        return proxy;
+    }
+
+    // Chooses the pool for a read-only connection
+    static class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+        private final Counter primaryReads;
+        private final Counter replicaReads;
+
+        ReplicaRoutingDataSource(MeterRegistry meterRegistry) {
+            this.primaryReads = readCounter(meterRegistry, PRIMARY);
+            this.replicaReads = readCounter(meterRegistry, REPLICA);
+        }
+
+        private static Counter readCounter(MeterRegistry registry, String target) {
+            return Counter.builder("wallet.datasource.reads")
+                    .description("Read-only connections by the database that served them")
+                    .tag("target", target)
+                    .register(registry);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (ReadRouting.isPinnedToPrimary()) {
+                primaryReads.increment();
+                return PRIMARY;
+            }
+            replicaReads.increment();
+            return REPLICA;
+        }
+    }
+}
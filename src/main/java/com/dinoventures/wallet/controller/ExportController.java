@@ -0,0 +1,54 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.service.LedgerExportService;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/exports")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final LedgerExportService ledgerExportService;
+
+    // Streams straight into the response on the request thread; a slow client slows the cursor down
+    @GetMapping("/{dataset}")
+    public void export(@PathVariable String dataset,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                       @RequestParam(defaultValue = LedgerExportService.FORMAT_NDJSON) String format,
+                       @RequestParam(defaultValue = "false") boolean gzip,
+                       HttpServletResponse response) throws IOException {
+
+        log.info("Export API called | dataset={} | from={} | to={} | format={} | gzip={}",
+                NullSafeUtils.safeToString(dataset), from, to, NullSafeUtils.safeToString(format), gzip);
+
+        // Before the first byte: errors still map to a normal 400 body
+        ledgerExportService.validate(dataset, format, from, to);
+
+        boolean csv = LedgerExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        String fileName = dataset.toLowerCase() + (csv ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream out = response.getOutputStream();
+        LedgerExportService.ExportStats stats = ledgerExportService.export(dataset, format, from, to, gzip, out);
+
+        log.info("Export streamed | dataset={} | rows={} | bytes={} | elapsedMs={}",
+                stats.dataset(), stats.rows(), stats.bytes(), stats.elapsedMillis());
+    }
+}
@@ -0,0 +1,28 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.service.ReconciliationService;
+import com.dinoventures.wallet.service.ReconciliationService.ReconciliationReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// /actuator/reconciliation: GET = last report (mismatches included), POST = run now
+@Component
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationEndpoint {
+
+    private final ReconciliationService reconciliationService;
+
+    @ReadOperation
+    public ReconciliationReport lastReport() {
+        return reconciliationService.getLastReport();
+    }
+
+    @WriteOperation
+    public ReconciliationReport runNow() {
+        return reconciliationService.run();
+    }
+}
@@ -1,14 +1,19 @@
 package com.dinoventures.wallet.controller;
 
 import com.dinoventures.wallet.dto.*;
+import com.dinoventures.wallet.engine.BalanceEngine;
+import com.dinoventures.wallet.service.BulkBonusService;
+import com.dinoventures.wallet.service.DatabaseBulkhead;
+import com.dinoventures.wallet.service.TransferPipeline;
 import com.dinoventures.wallet.service.WalletService;
-import com.dinoventures.wallet.utils.NullSafeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/wallets")
@@ -16,24 +21,29 @@ import org.springframework.web.bind.annotation.*;
 public class WalletOperationsController {
 
     private final WalletService walletService;
+    private final TransferPipeline transferPipeline;
+    private final BulkBonusService bulkBonusService;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final BalanceEngine balanceEngine;
 
     @PostMapping("/topup")
     public ResponseEntity<ApiResponse<TopUpResponse>> topUp(@RequestBody TopUpRequest request) {
 
-        log.info("Top-up API called | userId={} | assetCode={} | amount={} | key={}",
-                NullSafeUtils.safeToString(request.userId()),
-                NullSafeUtils.safeToString(request.assetCode()),
-                NullSafeUtils.safeToString(request.amount()),
-                NullSafeUtils.safeToString(request.idempotencyKey()));
+        if (log.isInfoEnabled()) {
+            log.info("Top-up API called | userId={} | assetCode={} | amount={} | key={}",
+                    request.userId(), request.assetCode(), request.amount(), request.idempotencyKey());
+        }
 
-        TopUpResponse response = walletService.topUp(request);
+        // Engine assets queue on their writer instead of holding a connection and a bulkhead permit
+        TopUpResponse response = balanceEngine.handles(request.assetCode())
+                ? walletService.topUpViaEngine(request)
+                : databaseBulkhead.call(DatabaseBulkhead.OP_TRANSFER, request.assetCode(),
+                        () -> transferPipeline.execute(() -> walletService.topUp(request)));
 
-        log.info("Top-up completed | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
-                NullSafeUtils.safeToString(response.transactionId()),
-                NullSafeUtils.safeToString(response.userId()),
-                NullSafeUtils.safeToString(response.assetCode()),
-                NullSafeUtils.safeToString(response.amount()),
-                NullSafeUtils.safeToString(response.newBalance()));
+        if (log.isInfoEnabled()) {
+            log.info("Top-up completed | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
+                    response.transactionId(), response.userId(), response.assetCode(), response.amount(), response.newBalance());
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Top-up successful", response));
@@ -42,46 +52,88 @@ public class WalletOperationsController {
     @PostMapping("/bonus")
     public ResponseEntity<ApiResponse<BonusResponse>> grantBonus(@RequestBody BonusRequest request) {
 
-        log.info("Bonus API called | userId={} | assetCode={} | amount={} | reason={} | key={}",
-                NullSafeUtils.safeToString(request.userId()),
-                NullSafeUtils.safeToString(request.assetCode()),
-                NullSafeUtils.safeToString(request.amount()),
-                NullSafeUtils.safeToString(request.reason()),
-                NullSafeUtils.safeToString(request.idempotencyKey()));
+        if (log.isInfoEnabled()) {
+            log.info("Bonus API called | userId={} | assetCode={} | amount={} | reason={} | key={}",
+                    request.userId(), request.assetCode(), request.amount(), request.reason(), request.idempotencyKey());
+        }
 
-        BonusResponse response = walletService.bonus(request);
+        // Engine assets queue on their writer instead of holding a connection and a bulkhead permit
+        BonusResponse response = balanceEngine.handles(request.assetCode())
+                ? walletService.bonusViaEngine(request)
+                : databaseBulkhead.call(DatabaseBulkhead.OP_TRANSFER, request.assetCode(),
+                        () -> transferPipeline.execute(() -> walletService.bonus(request)));
 
-        log.info("Bonus granted | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
-                NullSafeUtils.safeToString(response.transactionId()),
-                NullSafeUtils.safeToString(response.userId()),
-                NullSafeUtils.safeToString(response.assetCode()),
-                NullSafeUtils.safeToString(response.amount()),
-                NullSafeUtils.safeToString(response.newBalance()));
+        if (log.isInfoEnabled()) {
+            log.info("Bonus granted | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
+                    response.transactionId(), response.userId(), response.assetCode(), response.amount(), response.newBalance());
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Bonus granted successfully", response));
     }
 
+    // Per-item outcomes are in the body; the request itself succeeds even if some items fail.
+    // The body is not bound: BulkBonusService reads the items off the stream as it grants them
+    @PostMapping("/bonus/bulk")
+    public ResponseEntity<ApiResponse<BulkBonusResponse>> grantBulkBonus(InputStream body) {
+
+        log.info("Bulk bonus API called");
+
+        BulkBonusResponse response = databaseBulkhead.call(DatabaseBulkhead.OP_BULK,
+                () -> bulkBonusService.grant(body));
+
+        log.info("Bulk bonus completed | items={} | succeeded={} | duplicates={} | failed={}",
+                response.requested(), response.succeeded(), response.duplicates(), response.failed());
+
+        return ResponseEntity.ok(ApiResponse.success("Bulk bonus processed", response));
+    }
+
     @PostMapping("/spend")
     public ResponseEntity<ApiResponse<SpendResponse>> spend(@RequestBody SpendRequest request) {
 
-        log.info("Spend API called | userId={} | assetCode={} | amount={} | reference={} | key={}",
-                NullSafeUtils.safeToString(request.userId()),
-                NullSafeUtils.safeToString(request.assetCode()),
-                NullSafeUtils.safeToString(request.amount()),
-                NullSafeUtils.safeToString(request.reference()),
-                NullSafeUtils.safeToString(request.idempotencyKey()));
+        if (log.isInfoEnabled()) {
+            log.info("Spend API called | userId={} | assetCode={} | amount={} | reference={} | key={}",
+                    request.userId(), request.assetCode(), request.amount(), request.reference(), request.idempotencyKey());
+        }
 
-        SpendResponse response = walletService.spend(request);
+        // Engine assets queue on their writer instead of holding a connection and a bulkhead permit
+        SpendResponse response = balanceEngine.handles(request.assetCode())
+                ? walletService.spendViaEngine(request)
+                : databaseBulkhead.call(DatabaseBulkhead.OP_TRANSFER, request.assetCode(),
+                        () -> transferPipeline.execute(() -> walletService.spend(request)));
 
-        log.info("Spend completed | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
-                NullSafeUtils.safeToString(response.transactionId()),
-                NullSafeUtils.safeToString(response.userId()),
-                NullSafeUtils.safeToString(response.assetCode()),
-                NullSafeUtils.safeToString(response.amount()),
-                NullSafeUtils.safeToString(response.newBalance()));
+        if (log.isInfoEnabled()) {
+            log.info("Spend completed | txId={} | userId={} | assetCode={} | amount={} | newBalance={}",
+                    response.transactionId(), response.userId(), response.assetCode(), response.amount(), response.newBalance());
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Spend successful", response));
     }
+
+    // Player-to-player gift / trade between two user wallets of the same asset
+    @PostMapping("/transfer")
+    public ResponseEntity<ApiResponse<TransferResponse>> transfer(@RequestBody TransferRequest request) {
+
+        if (log.isInfoEnabled()) {
+            log.info("Transfer API called | fromUserId={} | toUserId={} | assetCode={} | amount={} | reference={} | key={}",
+                    request.fromUserId(), request.toUserId(), request.assetCode(), request.amount(),
+                    request.reference(), request.idempotencyKey());
+        }
+
+        // Engine assets queue on their writer instead of holding a connection and a bulkhead permit
+        TransferResponse response = balanceEngine.handles(request.assetCode())
+                ? walletService.transferViaEngine(request)
+                : databaseBulkhead.call(DatabaseBulkhead.OP_TRANSFER, request.assetCode(),
+                        () -> transferPipeline.execute(() -> walletService.transfer(request)));
+
+        if (log.isInfoEnabled()) {
+            log.info("Transfer completed | txId={} | fromUserId={} | toUserId={} | assetCode={} | amount={} | senderBalance={}",
+                    response.transactionId(), response.fromUserId(), response.toUserId(), response.assetCode(),
+                    response.amount(), response.senderBalance());
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Transfer successful", response));
+    }
 }
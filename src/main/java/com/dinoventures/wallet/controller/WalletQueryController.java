@@ -1,13 +1,23 @@
 package com.dinoventures.wallet.controller;
 
 import com.dinoventures.wallet.dto.ApiResponse;
+import com.dinoventures.wallet.dto.TransactionHistoryResponse;
 import com.dinoventures.wallet.dto.UserBalancesResponse;
+import com.dinoventures.wallet.service.BalanceCache;
+import com.dinoventures.wallet.service.BalanceStreamRegistry;
+import com.dinoventures.wallet.service.DatabaseBulkhead;
+import com.dinoventures.wallet.service.ReadRouting;
 import com.dinoventures.wallet.utils.NullSafeUtils;
 import com.dinoventures.wallet.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 @RestController
@@ -16,19 +26,71 @@ import org.springframework.web.bind.annotation.*;
 public class WalletQueryController {
 
     private final WalletService walletService;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final ReadRouting readRouting;
+    private final BalanceCache balanceCache;
+    private final BalanceStreamRegistry balanceStreamRegistry;
 
     @GetMapping("/{userId}/balances")
-    public ResponseEntity<ApiResponse<UserBalancesResponse>> getUserBalances(@PathVariable String userId) {
+    public ResponseEntity<ApiResponse<UserBalancesResponse>> getUserBalances(
+            @PathVariable String userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         log.info("Get user balances API called | userId={}", NullSafeUtils.safeToString(userId));
 
-        UserBalancesResponse balances = walletService.getUserBalances(userId);
+        // Cache hits take no bulkhead permit and run no query
+        BalanceCache.CachedBalances cached = balanceCache.get(userId, () -> databaseBulkhead.call(DatabaseBulkhead.OP_READ,
+                () -> readRouting.forUser(userId, () -> walletService.getUserBalances(userId))));
 
+        if (balanceCache.notModified(cached, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cached.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        UserBalancesResponse balances = cached.balances();
         log.info("User balances fetched | userId={} | assets={}",
                 NullSafeUtils.safeToString(balances.userId()),
                 balances.balances() != null ? balances.balances().size() : 0);
 
-        return ResponseEntity.ok(ApiResponse.success("User balances retrieved", balances));
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(ApiResponse.success("User balances retrieved", balances));
+    }
+
+    // Server-Sent Events: the user's balances on connect and after every committed change
+    @GetMapping(value = "/{userId}/balances/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserBalances(
+            @PathVariable String userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        log.info("Balance stream requested | userId={}", NullSafeUtils.safeToString(userId));
+        return balanceStreamRegistry.subscribe(userId, lastEventId);
+    }
+
+    @GetMapping("/{userId}/transactions")
+    public ResponseEntity<ApiResponse<TransactionHistoryResponse>> getTransactionHistory(
+            @PathVariable String userId,
+            @RequestParam(required = false) String assetCode,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        log.info("Transaction history API called | userId={} | assetCode={} | type={} | limit={}",
+                NullSafeUtils.safeToString(userId), NullSafeUtils.safeToString(assetCode),
+                NullSafeUtils.safeToString(type), limit);
+
+        TransactionHistoryResponse history = databaseBulkhead.call(DatabaseBulkhead.OP_READ,
+                () -> readRouting.forUser(userId,
+                        () -> walletService.getTransactionHistory(userId, assetCode, type, cursor, limit)));
+
+        log.info("Transaction history fetched | userId={} | count={} | hasMore={}",
+                NullSafeUtils.safeToString(history.userId()), history.transactions().size(),
+                history.nextCursor() != null);
+
+        return ResponseEntity.ok(ApiResponse.success("Transaction history retrieved", history));
     }
 
     // Optional simple health endpoint in this service namespace
@@ -0,0 +1,10 @@
+package com.dinoventures.wallet.dto;
+
+import java.math.BigDecimal;
+
+public record BulkBonusItem(
+        String userId,
+        String assetCode,
+        BigDecimal amount,
+        String idempotencyKey
+) {}
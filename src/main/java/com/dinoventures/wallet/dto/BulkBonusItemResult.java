@@ -0,0 +1,14 @@
+package com.dinoventures.wallet.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record BulkBonusItemResult(
+        String idempotencyKey,
+        String userId,
+        String assetCode,
+        String status,            // SUCCESS, DUPLICATE, FAILED
+        UUID transactionId,
+        BigDecimal newBalance,    // wallet balance once the item's batch committed
+        String message
+) {}
@@ -0,0 +1,11 @@
+package com.dinoventures.wallet.dto;
+
+import java.util.List;
+
+public record BulkBonusResponse(
+        int requested,
+        int succeeded,
+        int duplicates,
+        int failed,
+        List<BulkBonusItemResult> results
+) {}
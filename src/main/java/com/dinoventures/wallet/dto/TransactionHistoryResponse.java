@@ -4,5 +4,6 @@ import java.util.List;
 
 public record TransactionHistoryResponse(
         String userId,
-        List<TransactionSummary> transactions
+        List<TransactionSummary> transactions,
+        String nextCursor         // null on the last page
 ) {}
@@ -0,0 +1,12 @@
+package com.dinoventures.wallet.dto;
+
+import java.math.BigDecimal;
+
+public record TransferRequest(
+        String fromUserId,
+        String toUserId,
+        String assetCode,
+        BigDecimal amount,
+        String reference,
+        String idempotencyKey
+) {}
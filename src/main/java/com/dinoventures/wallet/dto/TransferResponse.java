@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferResponse(
+        UUID transactionId,
+        String fromUserId,
+        String toUserId,
+        String assetCode,
+        BigDecimal amount,
+        String status,
+        BigDecimal senderBalance,
+        BigDecimal recipientBalance
+) {}
@@ -0,0 +1,366 @@
+package com.dinoventures.wallet.engine;
+
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.entity.WalletTransaction;
+import com.dinoventures.wallet.exception.ConflictException;
+import com.dinoventures.wallet.repository.BulkTransferRepository;
+import com.dinoventures.wallet.repository.JournalRepository;
+import com.dinoventures.wallet.repository.JournalRow;
+import com.dinoventures.wallet.service.BalanceCache;
+import com.dinoventures.wallet.service.IdempotencyGuard;
+import com.dinoventures.wallet.service.SystemWalletRouter;
+import com.dinoventures.wallet.service.TransferResult;
+import com.dinoventures.wallet.utils.Ids;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single writer of one engine asset: owns the in-memory balances of every wallet
+ * of that asset and is the only thread that changes them.
+ *
+ * Commands are drained from the queue in batches. Each command is decided against
+ * memory (the "balance >= amount" check of atomicDebit becomes a map lookup), then the
+ * whole batch is journaled in one database transaction: transaction rows, ledger rows
+ * and the per-wallet balance deltas. Callers are answered only after that commit, so
+ * an acknowledged transfer is durable. If the batch fails, the touched wallets are
+ * dropped from memory and every command is replayed alone, like TransferPipeline does.
+ *
+ * A debit no system wallet shard covers alone is funded from the other shards first,
+ * journaled as REBALANCE rows in the same batch (SystemWalletRebalancer skips engine assets).
+ */
+@Slf4j
+class AssetWriter {
+
+    private static final String IDEMPOTENCY_CONSTRAINT = "uk_wallet_tx_idempotency";
+    private static final String REBALANCE = "REBALANCE";
+
+    private final String assetCode;
+    private final JournalRepository journalRepository;
+    private final BulkTransferRepository bulkTransferRepository;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BalanceCache balanceCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final int maxCachedWallets;
+    private final BlockingQueue<EngineCommand> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer journalWrites;
+
+    // Only touched by the writer thread
+    private final Map<UUID, BigDecimal> balances = new HashMap<>();
+    private final Map<String, Boolean> recentKeys;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    AssetWriter(String assetCode, JournalRepository journalRepository, BulkTransferRepository bulkTransferRepository,
+                IdempotencyGuard idempotencyGuard, BalanceCache balanceCache, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                int queueCapacity, int maxBatchSize, int maxCachedWallets, int recentKeyCapacity) {
+        this.assetCode = assetCode;
+        this.journalRepository = journalRepository;
+        this.bulkTransferRepository = bulkTransferRepository;
+        this.idempotencyGuard = idempotencyGuard;
+        this.balanceCache = balanceCache;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxCachedWallets = Math.max(1, maxCachedWallets);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        // Keys of recently journaled batches: a retry racing its own first attempt never reaches the database
+        this.recentKeys = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentKeyCapacity;
+            }
+        };
+        this.batchSizes = DistributionSummary.builder("wallet.engine.batch.size")
+                .description("Transfers journaled per database transaction")
+                .tag("asset", assetCode)
+                .register(meterRegistry);
+        this.journalWrites = Timer.builder("wallet.engine.journal.write")
+                .description("Time to persist one engine batch")
+                .tag("asset", assetCode)
+                .register(meterRegistry);
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "balance-engine-" + assetCode);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Anything still queued was never applied; callers get an error and can retry
+        EngineCommand pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Balance engine stopped"));
+        }
+    }
+
+    boolean submit(EngineCommand command) {
+        return queue.offer(command);
+    }
+
+    private void run() {
+        List<EngineCommand> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                EngineCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                process(batch, true);
+            } catch (InterruptedException e) {
+                running = false;
+                batch.forEach(command -> command.result().completeExceptionally(
+                        new IllegalStateException("Balance engine stopped")));
+            } catch (Exception e) {
+                // Never let the writer die: fail this batch, the next one starts from the database again
+                log.error("Balance engine batch crashed | asset={} | size={} | error={}",
+                        assetCode, batch.size(), e.getMessage());
+                balances.clear();
+                batch.forEach(command -> command.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<EngineCommand> batch, boolean replayOnFailure) {
+        loadMissingBalances(batch);
+
+        List<Decision> decisions = new ArrayList<>(batch.size());
+        List<JournalRow> rows = new ArrayList<>(batch.size());
+        Map<UUID, BigDecimal> deltas = new HashMap<>();
+        Set<String> batchKeys = new HashSet<>();
+
+        for (EngineCommand command : batch) {
+            if (!batchKeys.add(command.idempotencyKey()) || recentKeys.containsKey(command.idempotencyKey())) {
+                command.result().completeExceptionally(
+                        new ConflictException("Request already processed: " + command.idempotencyKey()));
+                continue;
+            }
+            if (!balances.containsKey(command.toWallet().getId())) {
+                command.result().completeExceptionally(
+                        new ConflictException("Target wallet disappeared: " + command.toWallet().getId()));
+                continue;
+            }
+            Decision decision = decide(command, deltas, rows);
+            decisions.add(decision);
+            rows.add(decision.row());
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<UUID, BigDecimal> persisted = journal(rows, deltas);
+            // The database applied our deltas on top of whatever it held; a wallet also written
+            // outside the engine (bulk bonus, another path) differs here and takes the database value
+            persisted.forEach((walletId, balance) -> {
+                if (balance.compareTo(balances.getOrDefault(walletId, balance)) != 0) {
+                    log.warn("Engine balance adopted from database | asset={} | wallet={} | memory={} | database={}",
+                            assetCode, walletId, balances.get(walletId), balance);
+                    balances.put(walletId, balance);
+                }
+            });
+            decisions.forEach(decision -> recentKeys.put(decision.row().idempotencyKey(), Boolean.TRUE));
+            batchSizes.record(decisions.size());
+            decisions.forEach(Decision::complete);
+        } catch (Exception e) {
+            // Nothing was written; memory for the touched wallets is ahead of the database
+            deltas.keySet().forEach(balances::remove);
+            if (replayOnFailure && decisions.size() > 1) {
+                log.warn("Engine batch failed, replaying one by one | asset={} | size={} | error={}",
+                        assetCode, decisions.size(), e.getMessage());
+                for (Decision decision : decisions) {
+                    process(List.of(decision.command()), false);
+                }
+                return;
+            }
+            decisions.forEach(decision -> decision.command().result().completeExceptionally(translate(e)));
+        }
+
+        if (balances.size() > maxCachedWallets) {
+            log.info("Engine wallet cache full, reloading lazily | asset={} | wallets={}", assetCode, balances.size());
+            balances.clear();
+        }
+    }
+
+    // One round trip for every wallet of the batch that is not in memory yet
+    private void loadMissingBalances(List<EngineCommand> batch) {
+        Set<UUID> missing = new HashSet<>();
+        for (EngineCommand command : batch) {
+            for (Wallet source : command.sourceWallets()) {
+                if (!balances.containsKey(source.getId())) {
+                    missing.add(source.getId());
+                }
+            }
+            if (!balances.containsKey(command.toWallet().getId())) {
+                missing.add(command.toWallet().getId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            balances.putAll(journalRepository.findBalances(missing));
+        }
+    }
+
+    // First source that can cover the amount is debited, as in TransactionProcessor; when none
+    // covers it alone, the other shards fund the first one (REBALANCE rows added to rows)
+    private Decision decide(EngineCommand command, Map<UUID, BigDecimal> deltas, List<JournalRow> rows) {
+        BigDecimal amount = command.amount();
+        BigDecimal available = BigDecimal.ZERO;
+
+        for (Wallet source : command.sourceWallets()) {
+            BigDecimal sourceBalance = balances.get(source.getId());
+            if (sourceBalance == null) {
+                continue;
+            }
+            if (sourceBalance.compareTo(amount) >= 0) {
+                return debit(command, source, deltas);
+            }
+            available = available.add(sourceBalance);
+        }
+
+        Wallet preferred = command.sourceWallets().get(0);
+        if (command.sourceWallets().size() > 1 && balances.containsKey(preferred.getId())
+                && available.compareTo(amount) >= 0) {
+            BigDecimal needed = amount.subtract(balances.get(preferred.getId()));
+            for (Wallet donor : command.sourceWallets().subList(1, command.sourceWallets().size())) {
+                BigDecimal part = balances.getOrDefault(donor.getId(), BigDecimal.ZERO).min(needed);
+                if (part.signum() > 0) {
+                    rows.add(move(command, donor, preferred, part, deltas));
+                    needed = needed.subtract(part);
+                }
+            }
+            return debit(command, preferred, deltas);
+        }
+
+        String reason = failureReason(command.transactionType());
+        String shortfall = command.sourceWallets().size() > 1
+                ? amount + " exceeds what the " + preferred.getWalletType() + " shards hold ("
+                        + SystemWalletRouter.describeShards(command.sourceWallets(), balances) + ")"
+                : "balance " + balances.get(preferred.getId()) + " is below " + amount;
+        return new Decision(command, row(command, preferred.getId(), "FAILED", reason),
+                null, null, reason + ": " + shortfall);
+    }
+
+    private Decision debit(EngineCommand command, Wallet source, Map<UUID, BigDecimal> deltas) {
+        UUID targetId = command.toWallet().getId();
+        BigDecimal amount = command.amount();
+        BigDecimal newSource = balances.get(source.getId()).subtract(amount);
+        balances.put(source.getId(), newSource);
+        BigDecimal newTarget = balances.get(targetId).add(amount);
+        balances.put(targetId, newTarget);
+        deltas.merge(source.getId(), amount.negate(), BigDecimal::add);
+        deltas.merge(targetId, amount, BigDecimal::add);
+        return new Decision(command, row(command, source.getId(), "SUCCESS", null), newSource, newTarget, null);
+    }
+
+    // Booked like SystemWalletRebalancer's moves: no user, no idempotency key
+    private JournalRow move(EngineCommand command, Wallet from, Wallet to, BigDecimal amount, Map<UUID, BigDecimal> deltas) {
+        balances.merge(from.getId(), amount.negate(), BigDecimal::add);
+        balances.merge(to.getId(), amount, BigDecimal::add);
+        deltas.merge(from.getId(), amount.negate(), BigDecimal::add);
+        deltas.merge(to.getId(), amount, BigDecimal::add);
+        log.info("Engine funded {} shard {} from shard {} | asset={} | amount={}",
+                to.getWalletType(), to.getShardIndex(), from.getShardIndex(), assetCode, amount);
+        return new JournalRow(Ids.next(), REBALANCE, null, command.assetType().getId(), amount, "SUCCESS", null,
+                null, from.getId(), to.getId(), Ids.next(), Ids.next(), command.now());
+    }
+
+    private Map<UUID, BigDecimal> journal(List<JournalRow> rows, Map<UUID, BigDecimal> deltas) {
+        long started = System.nanoTime();
+        Map<UUID, BigDecimal> persisted = transactionTemplate.execute(status -> {
+            journalRepository.insertTransactions(rows);
+            List<JournalRow> succeeded = rows.stream().filter(JournalRow::succeeded).toList();
+            if (succeeded.isEmpty()) {
+                return Map.<UUID, BigDecimal>of();
+            }
+            journalRepository.insertLedgerEntries(succeeded);
+            Map<UUID, BigDecimal> updated = bulkTransferRepository.creditWallets(deltas);
+            updated.forEach((walletId, balance) -> {
+                if (balance.signum() < 0) {
+                    throw new IllegalStateException("Wallet " + walletId + " would go negative: " + balance);
+                }
+            });
+            List<JournalRow> transfers = succeeded.stream().filter(row -> row.userId() != null).toList();
+            idempotencyGuard.recordAllAfterCommit(transfers.stream().map(JournalRow::idempotencyKey).toList(), "SUCCESS");
+            balanceCache.evictAllAfterCommit(transfers.stream().map(JournalRow::userId).distinct().toList());
+            return updated;
+        });
+        journalWrites.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return persisted;
+    }
+
+    private static JournalRow row(EngineCommand command, UUID sourceWalletId, String status, String reason) {
+        return new JournalRow(Ids.next(), command.transactionType(), command.user().getId(),
+                command.assetType().getId(), command.amount(), status, reason, command.idempotencyKey(),
+                sourceWalletId, command.toWallet().getId(), Ids.next(), Ids.next(), command.now());
+    }
+
+    private static RuntimeException translate(Exception e) {
+        if (e instanceof DataIntegrityViolationException violation
+                && NullSafeUtils.safeToString(violation.getMostSpecificCause().getMessage()).contains(IDEMPOTENCY_CONSTRAINT)) {
+            return new ConflictException("Request already processed");
+        }
+        return e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+    }
+
+    private static String failureReason(String transactionType) {
+        return switch (transactionType.toUpperCase()) {
+            case "SPEND", "TRANSFER" -> "INSUFFICIENT_FUNDS";
+            case "TOP_UP" -> "TREASURY_INSUFFICIENT";
+            case "BONUS" -> "BONUS_POOL_EXHAUSTED";
+            default -> "INSUFFICIENT_BALANCE";
+        };
+    }
+
+    private record Decision(EngineCommand command, JournalRow row, BigDecimal sourceBalance,
+                            BigDecimal targetBalance, String failure) {
+
+        void complete() {
+            if (failure != null) {
+                command.result().completeExceptionally(new ConflictException(failure));
+                return;
+            }
+            WalletTransaction tx = WalletTransaction.builder()
+                    .id(row.transactionId())
+                    .transactionType(row.transactionType())
+                    .user(command.user())
+                    .assetType(command.assetType())
+                    .amount(row.amount())
+                    .status(row.status())
+                    .idempotencyKey(row.idempotencyKey())
+                    .createdAt(row.createdAt())
+                    .updatedAt(row.createdAt())
+                    .build();
+            command.result().complete(new TransferResult(tx, sourceBalance, targetBalance));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.dinoventures.wallet.engine;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.exception.ConflictException;
+import com.dinoventures.wallet.exception.ServiceBusyException;
+import com.dinoventures.wallet.logging.StatementCounter;
+import com.dinoventures.wallet.repository.BulkTransferRepository;
+import com.dinoventures.wallet.repository.JournalRepository;
+import com.dinoventures.wallet.service.BalanceCache;
+import com.dinoventures.wallet.service.IdempotencyGuard;
+import com.dinoventures.wallet.service.TransferMetrics;
+import com.dinoventures.wallet.service.TransferResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional in-memory balance engine for very high-rate assets (wallet.engine.assets).
+ *
+ * Every listed asset gets one AssetWriter thread that owns the balances of all wallets
+ * of that asset, so transfers are decided without row locks and journaled to
+ * wallet_transactions / ledger_entries / wallets in batches. Transfers never span
+ * assets, so one writer per asset needs no coordination between writers.
+ *
+ * Recovery: a batch's rows and its balance deltas commit in one transaction, so the
+ * wallets table always includes every journaled transfer and there is no separate
+ * journal tail to replay. After a restart (or a failed batch) balances are simply
+ * reloaded from wallets on first use.
+ *
+ * The writer assumes it is the only one debiting its wallets: enable an asset on one
+ * instance only. Writes from other paths (bulk bonus) are picked up when the journal
+ * returns a different balance than memory expected.
+ */
+@Slf4j
+@Component
+public class BalanceEngine {
+
+    private final JournalRepository journalRepository;
+    private final BulkTransferRepository bulkTransferRepository;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BalanceCache balanceCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    private final MeterRegistry meterRegistry;
+
+    private final List<String> assets;
+    private final Map<String, AssetWriter> writers = new LinkedHashMap<>();
+
+    @Value("${wallet.engine.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${wallet.engine.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${wallet.engine.max-cached-wallets:1000000}")
+    private int maxCachedWallets;
+
+    @Value("${wallet.engine.recent-keys:200000}")
+    private int recentKeys;
+
+    @Value("${wallet.engine.response-timeout-ms:5000}")
+    private long responseTimeoutMillis;
+
+    public BalanceEngine(JournalRepository journalRepository,
+                         BulkTransferRepository bulkTransferRepository,
+                         IdempotencyGuard idempotencyGuard,
+                         BalanceCache balanceCache,
+                         TransactionTemplate transactionTemplate,
+                         TransferMetrics transferMetrics,
+                         MeterRegistry meterRegistry,
+                         @Value("${wallet.engine.assets:}") String assets) {
+        this.journalRepository = journalRepository;
+        this.bulkTransferRepository = bulkTransferRepository;
+        this.idempotencyGuard = idempotencyGuard;
+        this.balanceCache = balanceCache;
+        this.transactionTemplate = transactionTemplate;
+        this.transferMetrics = transferMetrics;
+        this.meterRegistry = meterRegistry;
+        this.assets = Arrays.stream(assets.split(","))
+                .map(String::trim)
+                .filter(code -> !code.isEmpty())
+                .map(String::toUpperCase)
+                .toList();
+    }
+
+    @PostConstruct
+    void start() {
+        for (String asset : assets) {
+            AssetWriter writer = new AssetWriter(asset, journalRepository, bulkTransferRepository,
+                    idempotencyGuard, balanceCache, transactionTemplate, meterRegistry,
+                    queueCapacity, maxBatchSize, maxCachedWallets, recentKeys);
+            writer.start();
+            writers.put(asset, writer);
+        }
+        if (!writers.isEmpty()) {
+            log.info("Balance engine enabled | assets={} | maxBatchSize={} | queueCapacity={}",
+                    writers.keySet(), maxBatchSize, queueCapacity);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (AssetWriter writer : writers.values()) {
+            writer.stop();
+        }
+    }
+
+    public boolean handles(String assetCode) {
+        return assetCode != null && writers.containsKey(assetCode.toUpperCase());
+    }
+
+    // Same contract as TransactionProcessor.processTransfer: the result, or ConflictException on rejection
+    public TransferResult transfer(String transactionType, List<Wallet> sourceWallets, Wallet toWallet,
+                                   BigDecimal amount, String idempotencyKey, User user,
+                                   AssetType assetType, LocalDateTime now) {
+        AssetWriter writer = writers.get(assetType.getCode().toUpperCase());
+        if (writer == null) {
+            throw new IllegalStateException("Asset not handled by the balance engine: " + assetType.getCode());
+        }
+
+        // The writer journals many requests per statement: none of it can be counted against this one
+        StatementCounter.skip();
+        long started = System.nanoTime();
+        String outcome = TransferMetrics.OUTCOME_ERROR;
+        CompletableFuture<TransferResult> result = new CompletableFuture<>();
+        try {
+            if (!writer.submit(new EngineCommand(transactionType, sourceWallets, toWallet, amount,
+                    idempotencyKey, user, assetType, now, result))) {
+                throw new ServiceBusyException("Balance engine queue full, retry later");
+            }
+            TransferResult transferred = result.get(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+            outcome = TransferMetrics.OUTCOME_SUCCESS;
+            return transferred;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConflictException conflict) {
+                outcome = TransferMetrics.OUTCOME_REJECTED;
+                throw conflict;
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // The transfer may still be journaled; a retry with the same key is answered by the idempotency check
+            throw new ServiceBusyException("Balance engine did not answer in time, retry with the same key");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for the balance engine");
+        } finally {
+            transferMetrics.recordTransfer(transactionType, outcome, started);
+        }
+    }
+}
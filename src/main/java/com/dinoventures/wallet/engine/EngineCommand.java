@@ -0,0 +1,24 @@
+package com.dinoventures.wallet.engine;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.service.TransferResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// A transfer waiting for its asset's writer; the caller blocks on `result`
+record EngineCommand(
+        String transactionType,
+        List<Wallet> sourceWallets,
+        Wallet toWallet,
+        BigDecimal amount,
+        String idempotencyKey,
+        User user,
+        AssetType assetType,
+        LocalDateTime now,
+        CompletableFuture<TransferResult> result
+) {}
@@ -2,6 +2,7 @@ package com.dinoventures.wallet.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -16,14 +17,20 @@ import java.util.UUID;
 public class LedgerEntry {
 
     @Id
-    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedIdAlgorithm.class)
     private UUID id;
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "wallet_transaction_id", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    // No foreign key: both tables are partitioned and their partitions are archived independently
+    @JoinColumn(name = "wallet_transaction_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private WalletTransaction walletTransaction;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "wallet_id", nullable = false)
     private Wallet wallet;
 
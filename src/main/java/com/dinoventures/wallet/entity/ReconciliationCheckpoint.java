@@ -0,0 +1,34 @@
+package com.dinoventures.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Per-wallet reconciliation state: ledger entries created before checkedThrough are already summed in ledgerNet
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "reconciliation_checkpoints")
+public class ReconciliationCheckpoint {
+
+    @Id
+    @Column(name = "wallet_id")
+    private UUID walletId;
+
+    @Column(nullable = false)
+    private BigDecimal openingBalance; // 0 for user wallets; system wallets are seeded outside the ledger
+
+    @Column(nullable = false)
+    private BigDecimal ledgerNet; // CREDITs - DEBITs with created_at < checkedThrough
+
+    @Column(nullable = false)
+    private LocalDateTime checkedThrough;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.dinoventures.wallet.entity;
+
+import com.dinoventures.wallet.utils.Ids;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+
+// Plugged into @UuidGenerator(algorithm = ...) on every entity id
+public class TimeOrderedIdAlgorithm implements UuidValueGenerator {
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return Ids.next();
+    }
+}
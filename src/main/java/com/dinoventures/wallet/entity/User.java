@@ -2,6 +2,7 @@ package com.dinoventures.wallet.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -15,7 +16,7 @@ import java.util.UUID;
 public class User {
 
     @Id
-    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedIdAlgorithm.class)
     private UUID id;
 
     @Column(nullable = false)
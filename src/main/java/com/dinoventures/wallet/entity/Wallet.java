@@ -2,6 +2,7 @@ package com.dinoventures.wallet.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,20 +23,27 @@ import java.util.UUID;
 public class Wallet {
 
     @Id
-    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedIdAlgorithm.class)
     private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "owner_user_id")
     private User ownerUser; // null for system wallets
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "asset_type_id", nullable = false)
     private AssetType assetType;
 
     @Column(name = "wallet_type", nullable = false)
     private String walletType; // USER, TREASURY, REVENUE, BONUS
 
+    @Column(name = "shard_index")
+    private Integer shardIndex; // system wallets only: 0..N-1, null for user wallets
+
     @Column(nullable = false)
     private BigDecimal balance;
 
@@ -2,6 +2,7 @@ package com.dinoventures.wallet.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -12,26 +13,27 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(
-    name = "wallet_transactions",
-    uniqueConstraints = {
-        @UniqueConstraint(name = "uk_wallet_tx_idempotency", columnNames = {"idempotency_key"})
-    }
-)
+// Partitioned by created_at (LedgerPartitionManager); key uniqueness lives in wallet_idempotency_keys,
+// or in the heap's uk_wallet_tx_idempotency index while partitioning is off
+@Table(name = "wallet_transactions")
 public class WalletTransaction {
 
     @Id
-    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedIdAlgorithm.class)
     private UUID id;
 
     @Column(nullable = false)
-    private String transactionType; // TOP_UP, BONUS, SPEND
+    private String transactionType; // TOP_UP, BONUS, SPEND, TRANSFER, REBALANCE
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "user_id", nullable = false)
-    private User user;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "user_id")
+    private User user; // null for REBALANCE (moves between system wallet shards)
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "asset_type_id", nullable = false)
     private AssetType assetType;
 
@@ -41,7 +43,7 @@ public class WalletTransaction {
     @Column(nullable = false)
     private String status; // PENDING, SUCCESS, FAILED
 
-    @Column(name = "idempotency_key", unique = true)
+    @Column(name = "idempotency_key")
     private String idempotencyKey;
 
     private String failureReason;
@@ -0,0 +1,48 @@
+package com.dinoventures.wallet.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Publishes the ring buffer's drop count and queue depth, so a logging backlog shows
+ * up on the dashboards instead of as missing lines.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoggingMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void register() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof RingBufferAppender ring) {
+                FunctionCounter.builder("wallet.logging.dropped", ring, RingBufferAppender::getDropped)
+                        .description("Log events dropped because the logging queue was full")
+                        .register(meterRegistry);
+                Gauge.builder("wallet.logging.queue.depth", ring, RingBufferAppender::getQueueDepth)
+                        .description("Log events waiting to be written")
+                        .register(meterRegistry);
+                log.info("Logging ring buffer metrics registered | appender={}", ring.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.dinoventures.wallet.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the statements each request runs (StatementCounter) and checks them against a
+ * per-endpoint budget, so an N+1 or an eager association shows up as a number instead
+ * of as latency.
+ *
+ * The endpoint is the last path segment, as for log sampling; only endpoints listed in
+ * wallet.query-budget.budgets ("balances=2,topup=5") are counted. Counts are published as
+ * wallet.http.statements{endpoint}; requests above the budget are logged and counted in
+ * wallet.http.statements.over.budget{endpoint}. Requests whose statements cannot be
+ * attributed to them (balance-engine assets) are only counted in
+ * wallet.http.statements.skipped{endpoint}. The defaults leave room for cold caches
+ * and first-time wallet creation; ./testQueryBudget.sh asserts the tighter warm-path counts.
+ *
+ * Off unless wallet.query-budget.enabled is set: counting puts a proxy in front of every
+ * JDBC call (StatementCountingDataSource), which production should not pay for.
+ */
+@Slf4j
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Integer> budgets;
+    private final boolean enabled;
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry,
+                             @Value("${wallet.query-budget.enabled:false}") boolean enabled,
+                             @Value("${wallet.query-budget.budgets:balances=2,transactions=2,topup=4,bonus=4,spend=4,transfer=7}")
+                             String budgets) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.budgets = parseBudgets(budgets);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpoint = RequestLogSamplingFilter.endpointOf(request.getRequestURI());
+        Integer budget = enabled ? budgets.get(endpoint) : null;
+        if (budget == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        StatementCounter.Count count = StatementCounter.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StatementCounter.close();
+        }
+
+        if (count.skipped()) {
+            Counter.builder("wallet.http.statements.skipped")
+                    .description("Requests left out of the statement budget: their work ran on another thread")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            return;
+        }
+        int statements = count.statements();
+        DistributionSummary.builder("wallet.http.statements")
+                .description("SQL statements executed for the request, per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(statements);
+        if (statements > budget) {
+            Counter.builder("wallet.http.statements.over.budget")
+                    .description("Requests that ran more statements than their endpoint's budget")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Statement budget exceeded | endpoint={} | statements={} | budget={}", endpoint, statements, budget);
+        }
+    }
+
+    private static Map<String, Integer> parseBudgets(String value) {
+        Map<String, Integer> parsed = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("wallet.query-budget.budgets entries must be endpoint=statements: " + pair);
+            }
+            parsed.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return Map.copyOf(parsed);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dinoventures.wallet.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides once per request whether its INFO lines are written, so a sampled request keeps
+ * all of its lines and an unsampled one writes none (WARN / ERROR are always written).
+ *
+ * The endpoint is the last path segment (topup, bonus, spend, bulk, balances, ...); rates
+ * come from wallet.logging.sample-rates as "topup=0.05,spend=0.05", anything not listed
+ * uses wallet.logging.default-sample-rate. Endpoint and decision go to the MDC, so they
+ * appear in the structured log lines.
+ */
+@Slf4j
+@Component
+public class RequestLogSamplingFilter extends OncePerRequestFilter {
+
+    static final String MDC_ENDPOINT = "endpoint";
+    static final String MDC_SAMPLED = "sampled";
+    static final String NOT_SAMPLED = "false";
+
+    private final Map<String, Double> rates;
+    private final double defaultRate;
+
+    public RequestLogSamplingFilter(@Value("${wallet.logging.sample-rates:}") String sampleRates,
+                                    @Value("${wallet.logging.default-sample-rate:1.0}") double defaultRate) {
+        this.rates = parseRates(sampleRates);
+        this.defaultRate = defaultRate;
+        log.info("Request log sampling | default={} | endpoints={}", defaultRate, rates);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpoint = endpointOf(request.getRequestURI());
+        double rate = rates.getOrDefault(endpoint, defaultRate);
+        boolean sampled = rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+
+        MDC.put(MDC_ENDPOINT, endpoint);
+        if (!sampled) {
+            MDC.put(MDC_SAMPLED, NOT_SAMPLED);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_ENDPOINT);
+            MDC.remove(MDC_SAMPLED);
+        }
+    }
+
+    static String endpointOf(String uri) {
+        int end = uri.endsWith("/") ? uri.length() - 1 : uri.length();
+        int start = uri.lastIndexOf('/', end - 1) + 1;
+        return uri.substring(start, end);
+    }
+
+    private static Map<String, Double> parseRates(String value) {
+        Map<String, Double> parsed = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("wallet.logging.sample-rates entries must be endpoint=rate: " + pair);
+            }
+            parsed.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+        }
+        return Map.copyOf(parsed);
+    }
+}
@@ -0,0 +1,28 @@
+package com.dinoventures.wallet.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Mutes INFO and below on request threads that RequestLogSamplingFilter did not sample.
+ *
+ * Turbo filters run before a logging event exists, including for isInfoEnabled(), so an
+ * unsampled request pays a ThreadLocal lookup per log call and nothing else. WARN and
+ * ERROR always pass; threads outside a request carry no decision and are not affected.
+ */
+public class SampledRequestTurboFilter extends TurboFilter {
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        return RequestLogSamplingFilter.NOT_SAMPLED.equals(MDC.get(RequestLogSamplingFilter.MDC_SAMPLED))
+                ? FilterReply.DENY
+                : FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,77 @@
+package com.dinoventures.wallet.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements executed for the current request while a count is open
+ * (QueryBudgetFilter opens one per request). StatementCountingDataSource calls
+ * increment() on every JDBC execution, so JPQL, derived, native and JdbcTemplate
+ * statements are all counted.
+ *
+ * A count belongs to the thread that opened it. Work handed to another thread is
+ * attributed to the request by attaching its count there (the group-commit committer
+ * does this per request); work that cannot be split per request, such as the balance
+ * engine's batched journal, marks the count skipped instead.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    public static final class Count {
+
+        private final AtomicInteger statements = new AtomicInteger();
+        private volatile boolean skipped;
+
+        int statements() {
+            return statements.get();
+        }
+
+        boolean skipped() {
+            return skipped;
+        }
+    }
+
+    static Count open() {
+        Count count = new Count();
+        CURRENT.set(count);
+        return count;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    static void increment() {
+        Count count = CURRENT.get();
+        if (count != null) {
+            count.statements.incrementAndGet();
+        }
+    }
+
+    // The count open on this thread, to be attached where its work continues; null if none
+    public static Count current() {
+        return CURRENT.get();
+    }
+
+    // Counts this thread's statements into count (null for none); returns what was attached before
+    public static Count attach(Count count) {
+        Count previous = CURRENT.get();
+        if (count == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(count);
+        }
+        return previous;
+    }
+
+    // The request's statements run where they cannot be attributed to it: leave it out of its budget
+    public static void skip() {
+        Count count = CURRENT.get();
+        if (count != null) {
+            count.skipped = true;
+        }
+    }
+}
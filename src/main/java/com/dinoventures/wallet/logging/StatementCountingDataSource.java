@@ -0,0 +1,82 @@
+package com.dinoventures.wallet.logging;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * The application DataSource as seen by QueryBudgetFilter: connections and the statements
+ * they create are JDK proxies that pass every call through and report each execution to
+ * StatementCounter. A batch is one execution, as it is one round trip.
+ *
+ * Wraps the "dataSource" bean when wallet.query-budget.enabled is on (PersistenceTuningConfig),
+ * so Hibernate, JdbcTemplate and the group-commit pipeline all go through it; unwrap() still
+ * reaches the driver's connection.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> CREATE = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T proxy(Class<T> type, Object target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Counting(target)));
+    }
+
+    private record Counting(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "unwrap", "isWrapperFor" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return "unwrap".equals(name) ? proxy : Boolean.TRUE;
+                    }
+                }
+                default -> {
+                    if (EXECUTE.contains(name)) {
+                        StatementCounter.increment();
+                    }
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            // Statement, PreparedStatement or CallableStatement, as declared by the Connection method
+            return CREATE.contains(name) && target instanceof Connection
+                    ? proxy(method.getReturnType(), result)
+                    : result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.dinoventures.wallet.outbox;
+
+import com.dinoventures.wallet.repository.BalanceChangeEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the change events drained by OutboxRelay. Every sink bean receives
+ * every batch, in outbox order.
+ *
+ * Delivery is at least once: a batch is deleted from the outbox only after all sinks
+ * returned, and a sink that throws gets the same batch again (and so do the sinks that
+ * already took it). Consumers deduplicate on the event id.
+ */
+public interface ChangeEventSink {
+
+    String name();
+
+    void publish(List<BalanceChangeEvent> events) throws Exception;
+}
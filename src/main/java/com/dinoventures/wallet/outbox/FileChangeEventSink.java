@@ -0,0 +1,91 @@
+package com.dinoventures.wallet.outbox;
+
+import com.dinoventures.wallet.repository.BalanceChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Appends relayed events to a local NDJSON file, one line per event, active when
+ * wallet.outbox.file.path is set. Each batch is one write followed by an fsync, so a
+ * batch the relay deletes from the outbox is already on disk.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.outbox.file.path")
+public class FileChangeEventSink implements ChangeEventSink {
+
+    @Value("${wallet.outbox.file.path}")
+    private Path path;
+
+    private FileChannel channel;
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("Outbox file sink | path={}", path.toAbsolutePath());
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public void publish(List<BalanceChangeEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder(events.size() * 360);
+        for (BalanceChangeEvent event : events) {
+            appendJson(lines, event);
+            lines.append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private static void appendJson(StringBuilder line, BalanceChangeEvent event) {
+        line.append("{\"id\":").append(event.id())
+                .append(",\"transactionId\":").append(quoted(event.transactionId()))
+                .append(",\"transactionType\":\"").append(event.transactionType()).append('"')
+                .append(",\"assetCode\":\"").append(event.assetCode()).append('"')
+                .append(",\"sourceWalletId\":").append(quoted(event.sourceWalletId()))
+                .append(",\"sourceUserId\":").append(quoted(event.sourceUserId()))
+                .append(",\"sourceBalance\":").append(plain(event.sourceBalance()))
+                .append(",\"targetWalletId\":").append(quoted(event.targetWalletId()))
+                .append(",\"targetUserId\":").append(quoted(event.targetUserId()))
+                .append(",\"targetBalance\":").append(plain(event.targetBalance()))
+                .append(",\"createdAt\":\"").append(event.createdAt()).append("\"}");
+    }
+
+    private static String quoted(UUID id) {
+        return id == null ? "null" : "\"" + id + "\"";
+    }
+
+    private static String plain(BigDecimal amount) {
+        return amount == null ? "null" : amount.toPlainString();
+    }
+}
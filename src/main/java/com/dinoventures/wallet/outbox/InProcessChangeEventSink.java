@@ -0,0 +1,37 @@
+package com.dinoventures.wallet.outbox;
+
+import com.dinoventures.wallet.repository.BalanceChangeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Hands relayed batches to consumers in this JVM. Subscribers run on the relay thread,
+ * so they must hand off rather than block; one that throws fails the batch, which is
+ * then delivered again. With no subscriber a batch is simply accepted.
+ */
+@Component
+public class InProcessChangeEventSink implements ChangeEventSink {
+
+    private final List<Consumer<List<BalanceChangeEvent>>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String name() {
+        return "in_process";
+    }
+
+    // Returns the handle that unsubscribes
+    public Runnable subscribe(Consumer<List<BalanceChangeEvent>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void publish(List<BalanceChangeEvent> events) {
+        for (Consumer<List<BalanceChangeEvent>> subscriber : subscribers) {
+            subscriber.accept(events);
+        }
+    }
+}
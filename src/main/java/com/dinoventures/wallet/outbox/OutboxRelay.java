@@ -0,0 +1,232 @@
+package com.dinoventures.wallet.outbox;
+
+import com.dinoventures.wallet.repository.BalanceChangeEvent;
+import com.dinoventures.wallet.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox of balance changes (wallet.outbox.enabled).
+ *
+ * Every successful transfer of the row-lock path writes one event into wallet_outbox
+ * from inside its transfer statement, so the event commits or rolls back with the
+ * transfer and costs no extra round trip. This relay drains the table in batches of
+ * up to max-batch-size: read the oldest events, publish them to every ChangeEventSink,
+ * delete them, all in one transaction. A sink failure rolls the delete back and the
+ * batch is published again: delivery is at least once.
+ *
+ * Events of one wallet are written under that wallet's row lock, so their ids follow
+ * commit order, and reading in id order keeps them in order per wallet. An advisory
+ * lock lets one instance drain at a time.
+ *
+ * Between drains the relay waits on LISTEN wallet_outbox, on a connection of its own
+ * outside the pool; poll-interval-ms bounds the wait in case a notification is missed.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final List<ChangeEventSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter relayed;
+    private final Counter publishFailures;
+    private final Counter notifyWakeups;
+    private final Counter pollWakeups;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+
+    @Value("${wallet.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Value("${wallet.outbox.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${wallet.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    private Connection listener;
+    private Thread relay;
+    private volatile boolean running;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       List<ChangeEventSink> sinks,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = transactionTemplate;
+
+        this.relayed = Counter.builder("wallet.outbox.relayed")
+                .description("Change events published to the sinks and removed from the outbox")
+                .register(meterRegistry);
+        this.publishFailures = Counter.builder("wallet.outbox.publish.failures")
+                .description("Outbox batches that failed and will be published again")
+                .register(meterRegistry);
+        this.notifyWakeups = wakeupCounter(meterRegistry, "notify");
+        this.pollWakeups = wakeupCounter(meterRegistry, "poll");
+        this.batchSizes = DistributionSummary.builder("wallet.outbox.batch.size")
+                .description("Change events published per relay transaction")
+                .register(meterRegistry);
+        this.lag = Timer.builder("wallet.outbox.lag")
+                .description("Time from a transfer to the publication of its change event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter wakeupCounter(MeterRegistry registry, String source) {
+        return Counter.builder("wallet.outbox.wakeups")
+                .description("Relay wake-ups by what woke it")
+                .tag("source", source)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        outboxRepository.createSchema();
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        relay = new Thread(this::run, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+        log.info("Outbox relay enabled | sinks={} | maxBatchSize={}",
+                sinks.stream().map(ChangeEventSink::name).toList(), maxBatchSize);
+    }
+
+    // Undelivered events stay in the table for the next start
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (relay != null) {
+            relay.interrupt();
+            relay.join(pollIntervalMillis + TimeUnit.SECONDS.toMillis(5));
+        }
+        closeListener();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (listener == null) {
+                    listen();
+                }
+                // A full batch means more is waiting: drain again before sleeping
+                if (drain() < maxBatchSize) {
+                    await();
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                publishFailures.increment();
+                log.error("Outbox relay failed, retrying | error={}", e.getMessage());
+                closeListener();
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException interrupted) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private int drain() {
+        List<BalanceChangeEvent> events = transactionTemplate.execute(status -> {
+            if (!outboxRepository.tryLockRelay()) {
+                return List.<BalanceChangeEvent>of();
+            }
+            List<BalanceChangeEvent> batch = outboxRepository.findOldest(maxBatchSize);
+            if (!batch.isEmpty()) {
+                publish(batch);
+                outboxRepository.delete(batch);
+            }
+            return batch;
+        });
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        events.forEach(event -> lag.record(Duration.between(event.createdAt(), now)));
+        relayed.increment(events.size());
+        batchSizes.record(events.size());
+        return events.size();
+    }
+
+    private void publish(List<BalanceChangeEvent> batch) {
+        for (ChangeEventSink sink : sinks) {
+            try {
+                sink.publish(batch);
+            } catch (Exception e) {
+                throw new IllegalStateException("Sink " + sink.name() + " failed", e);
+            }
+        }
+    }
+
+    private void listen() throws SQLException {
+        listener = DriverManager.getConnection(url, username, password);
+        try (Statement statement = listener.createStatement()) {
+            statement.execute("LISTEN " + OutboxRepository.CHANNEL);
+        }
+    }
+
+    // Notifications sent while draining are already queued on the connection and return at once
+    private void await() throws SQLException {
+        PGNotification[] notifications = listener.unwrap(PGConnection.class)
+                .getNotifications((int) Math.max(1, pollIntervalMillis));
+        if (notifications != null && notifications.length > 0) {
+            notifyWakeups.increment();
+        } else {
+            pollWakeups.increment();
+        }
+    }
+
+    private void closeListener() {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.close();
+        } catch (SQLException e) {
+            log.debug("Closing outbox listener failed | error={}", e.getMessage());
+        }
+        listener = null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.dinoventures.wallet.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One committed transfer from wallet_outbox: both wallets with their balances right after it.
+// id is the outbox sequence; the events of one wallet have increasing ids in commit order.
+public record BalanceChangeEvent(
+        long id,
+        UUID transactionId,
+        String transactionType,
+        String assetCode,
+        UUID sourceWalletId,
+        UUID sourceUserId,          // null for system wallets
+        BigDecimal sourceBalance,
+        UUID targetWalletId,
+        UUID targetUserId,
+        BigDecimal targetBalance,
+        LocalDateTime createdAt
+) {}
@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// One credit of a bulk grant: its transaction row and the two ledger rows it books
+public record BulkCreditRow(
+        UUID transactionId,
+        UUID userId,
+        UUID walletId,
+        BigDecimal amount,
+        String idempotencyKey,
+        UUID debitEntryId,
+        UUID creditEntryId
+) {}
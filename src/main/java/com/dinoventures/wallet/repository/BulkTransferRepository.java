@@ -0,0 +1,186 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Set-based statements for bulk grants. Every statement takes whole columns as
+ * Postgres arrays and unnests them server-side, so a batch of any size costs one
+ * round trip per step instead of one per row. Must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulkTransferRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Set<UUID> findExistingUserIds(Collection<UUID> userIds) {
+        Set<UUID> existing = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id FROM users WHERE id = ANY(CAST(? AS uuid[]))");
+            ps.setArray(1, textArray(con, userIds, UUID::toString));
+            return ps;
+        }, rs -> {
+            existing.add(rs.getObject(1, UUID.class));
+        });
+        return existing;
+    }
+
+    // USER wallet id per owner; missing wallets are created by the same statement.
+    // The plain SELECT does not see the CTE's inserts (same snapshot), so the union has no overlap.
+    public Map<UUID, UUID> ensureUserWallets(UUID assetTypeId, List<UUID> ownerIds,
+                                             List<UUID> newWalletIds, LocalDateTime now) {
+        Map<UUID, UUID> walletsByOwner = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                WITH created AS (
+                    INSERT INTO wallets (id, owner_user_id, asset_type_id, wallet_type, balance, created_at, updated_at)
+                    SELECT n.id, n.owner_user_id, CAST(? AS uuid), 'USER', 0, ?, ?
+                    FROM unnest(CAST(? AS uuid[]), CAST(? AS uuid[])) AS n(id, owner_user_id)
+                    ON CONFLICT ON CONSTRAINT uk_wallet_user_asset_type DO NOTHING
+                    RETURNING id, owner_user_id
+                )
+                SELECT id, owner_user_id FROM created
+                UNION ALL
+                SELECT id, owner_user_id FROM wallets
+                WHERE asset_type_id = CAST(? AS uuid)
+                AND wallet_type = 'USER'
+                AND owner_user_id = ANY(CAST(? AS uuid[]))
+                """);
+            Timestamp timestamp = Timestamp.valueOf(now);
+            Array owners = textArray(con, ownerIds, UUID::toString);
+            ps.setString(1, assetTypeId.toString());
+            ps.setTimestamp(2, timestamp);
+            ps.setTimestamp(3, timestamp);
+            ps.setArray(4, textArray(con, newWalletIds, UUID::toString));
+            ps.setArray(5, owners);
+            ps.setString(6, assetTypeId.toString());
+            ps.setArray(7, owners);
+            return ps;
+        }, rs -> {
+            walletsByOwner.put(rs.getObject(2, UUID.class), rs.getObject(1, UUID.class));
+        });
+        return walletsByOwner;
+    }
+
+    // Inserts SUCCESS transactions; rows whose idempotency key is already claimed, and repeats
+    // of a key within the batch, are skipped. A key claimed concurrently by another request
+    // fails the statement on uk_wallet_tx_idempotency. Returns the ids actually inserted.
+    public Set<UUID> insertTransactions(List<BulkCreditRow> rows, String transactionType,
+                                        UUID assetTypeId, LocalDateTime now) {
+        Set<UUID> inserted = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO wallet_transactions
+                    (id, transaction_type, user_id, asset_type_id, amount, status,
+                     idempotency_key, created_at, updated_at)
+                SELECT DISTINCT ON (t.idempotency_key)
+                       t.id, ?, t.user_id, CAST(? AS uuid), t.amount, 'SUCCESS', t.idempotency_key, ?, ?
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS uuid[]), CAST(? AS numeric[]), CAST(? AS varchar[]))
+                    WITH ORDINALITY AS t(id, user_id, amount, idempotency_key, ord)
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM wallet_idempotency_keys k WHERE k.idempotency_key = t.idempotency_key
+                )
+                ORDER BY t.idempotency_key, t.ord
+                RETURNING id
+                """);
+            Timestamp timestamp = Timestamp.valueOf(now);
+            ps.setString(1, transactionType);
+            ps.setString(2, assetTypeId.toString());
+            ps.setTimestamp(3, timestamp);
+            ps.setTimestamp(4, timestamp);
+            ps.setArray(5, textArray(con, rows, row -> row.transactionId().toString()));
+            ps.setArray(6, textArray(con, rows, row -> row.userId().toString()));
+            ps.setArray(7, textArray(con, rows, row -> row.amount().toPlainString()));
+            ps.setArray(8, textArray(con, rows, BulkCreditRow::idempotencyKey));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getObject(1, UUID.class));
+        });
+        return inserted;
+    }
+
+    // Credits every wallet by its summed amount and returns the new balances.
+    // Rows are locked in id order first, so concurrent bulk grants over the same users cannot deadlock.
+    public Map<UUID, BigDecimal> creditWallets(Map<UUID, BigDecimal> amountsByWallet) {
+        List<UUID> walletIds = List.copyOf(amountsByWallet.keySet());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id FROM wallets WHERE id = ANY(CAST(? AS uuid[])) ORDER BY id FOR UPDATE");
+            ps.setArray(1, textArray(con, walletIds, UUID::toString));
+            return ps;
+        }, rs -> {
+        });
+
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                UPDATE wallets w
+                SET balance = w.balance + c.amount,
+                    updated_at = CURRENT_TIMESTAMP
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS numeric[])) AS c(id, amount)
+                WHERE w.id = c.id
+                RETURNING w.id, w.balance
+                """);
+            ps.setArray(1, textArray(con, walletIds, UUID::toString));
+            ps.setArray(2, textArray(con, walletIds, id -> amountsByWallet.get(id).toPlainString()));
+            return ps;
+        }, rs -> {
+            balances.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2));
+        });
+        return balances;
+    }
+
+    // DEBIT on the source wallet and CREDIT on the user wallet for every row
+    public int insertLedgerEntries(UUID sourceWalletId, List<BulkCreditRow> rows, LocalDateTime now) {
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement("""
+                WITH t AS (
+                    SELECT * FROM unnest(CAST(? AS uuid[]), CAST(? AS uuid[]), CAST(? AS uuid[]),
+                                         CAST(? AS uuid[]), CAST(? AS numeric[]))
+                        AS t(tx_id, debit_id, credit_id, wallet_id, amount)
+                )
+                INSERT INTO ledger_entries (id, wallet_transaction_id, wallet_id, entry_type, amount, created_at)
+                SELECT debit_id, tx_id, CAST(? AS uuid), 'DEBIT', amount, ? FROM t
+                UNION ALL
+                SELECT credit_id, tx_id, wallet_id, 'CREDIT', amount, ? FROM t
+                """)) {
+                Timestamp timestamp = Timestamp.valueOf(now);
+                ps.setArray(1, textArray(con, rows, row -> row.transactionId().toString()));
+                ps.setArray(2, textArray(con, rows, row -> row.debitEntryId().toString()));
+                ps.setArray(3, textArray(con, rows, row -> row.creditEntryId().toString()));
+                ps.setArray(4, textArray(con, rows, row -> row.walletId().toString()));
+                ps.setArray(5, textArray(con, rows, row -> row.amount().toPlainString()));
+                ps.setString(6, sourceWalletId.toString());
+                ps.setTimestamp(7, timestamp);
+                ps.setTimestamp(8, timestamp);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    // Columns travel as text arrays and are cast server-side, which works for every element type.
+    // Shared with JournalRepository.
+    static <T> Array textArray(Connection con, Collection<T> values,
+                               Function<T, String> toText) throws SQLException {
+        return con.createArrayOf("text", values.stream().map(toText).toArray(String[]::new));
+    }
+}
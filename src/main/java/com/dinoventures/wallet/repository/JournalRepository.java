@@ -0,0 +1,139 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persists balance-engine batches into the regular tables: one multi-row statement for
+ * the transactions and one for their ledger entries, whatever the batch size. The
+ * matching wallet balance deltas go through BulkTransferRepository.creditWallets in the
+ * same transaction. Must run inside a transaction.
+ *
+ * FailedTransactionRecorder uses insertFailedTransactions for rejections of the
+ * row-lock path.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JournalRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<UUID, BigDecimal> findBalances(Collection<UUID> walletIds) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, balance FROM wallets WHERE id = ANY(CAST(? AS uuid[]))");
+            ps.setArray(1, BulkTransferRepository.textArray(con, walletIds, UUID::toString));
+            return ps;
+        }, rs -> {
+            balances.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2));
+        });
+        return balances;
+    }
+
+    // Plain INSERT: a key that already exists (another instance) fails the whole batch on purpose.
+    // REBALANCE rows (shard funding) have neither user nor key
+    public int insertTransactions(List<JournalRow> rows) {
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO wallet_transactions
+                    (id, transaction_type, user_id, asset_type_id, amount, status,
+                     idempotency_key, failure_reason, created_at, updated_at)
+                SELECT t.id, t.transaction_type, t.user_id, t.asset_type_id, t.amount, t.status,
+                       t.idempotency_key, t.failure_reason, t.created_at, t.created_at
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS varchar[]), CAST(? AS uuid[]), CAST(? AS uuid[]),
+                            CAST(? AS numeric[]), CAST(? AS varchar[]), CAST(? AS varchar[]),
+                            CAST(? AS varchar[]), CAST(? AS timestamp[]))
+                    AS t(id, transaction_type, user_id, asset_type_id, amount, status,
+                         idempotency_key, failure_reason, created_at)
+                """)) {
+                ps.setArray(1, BulkTransferRepository.textArray(con, rows, row -> row.transactionId().toString()));
+                ps.setArray(2, BulkTransferRepository.textArray(con, rows, JournalRow::transactionType));
+                ps.setArray(3, BulkTransferRepository.textArray(con, rows, row -> row.userId() == null ? null : row.userId().toString()));
+                ps.setArray(4, BulkTransferRepository.textArray(con, rows, row -> row.assetTypeId().toString()));
+                ps.setArray(5, BulkTransferRepository.textArray(con, rows, row -> row.amount().toPlainString()));
+                ps.setArray(6, BulkTransferRepository.textArray(con, rows, JournalRow::status));
+                ps.setArray(7, BulkTransferRepository.textArray(con, rows, JournalRow::idempotencyKey));
+                ps.setArray(8, BulkTransferRepository.textArray(con, rows, JournalRow::failureReason));
+                ps.setArray(9, BulkTransferRepository.textArray(con, rows, row -> row.createdAt().toString()));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    // FAILED rows recorded after the fact (FailedTransactionRecorder): a key claimed in the meantime,
+    // e.g. by a retry that succeeded, and repeats within the batch are skipped. Returns the keys inserted.
+    public List<String> insertFailedTransactions(List<JournalRow> rows) {
+        List<String> inserted = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO wallet_transactions
+                    (id, transaction_type, user_id, asset_type_id, amount, status,
+                     idempotency_key, failure_reason, created_at, updated_at)
+                SELECT DISTINCT ON (t.idempotency_key)
+                       t.id, t.transaction_type, t.user_id, t.asset_type_id, t.amount, 'FAILED',
+                       t.idempotency_key, t.failure_reason, t.created_at, t.created_at
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS varchar[]), CAST(? AS uuid[]), CAST(? AS uuid[]),
+                            CAST(? AS numeric[]), CAST(? AS varchar[]), CAST(? AS varchar[]),
+                            CAST(? AS timestamp[]))
+                    WITH ORDINALITY AS t(id, transaction_type, user_id, asset_type_id, amount,
+                                         idempotency_key, failure_reason, created_at, ord)
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM wallet_idempotency_keys k WHERE k.idempotency_key = t.idempotency_key
+                )
+                ORDER BY t.idempotency_key, t.ord
+                RETURNING idempotency_key
+                """);
+            ps.setArray(1, BulkTransferRepository.textArray(con, rows, row -> row.transactionId().toString()));
+            ps.setArray(2, BulkTransferRepository.textArray(con, rows, JournalRow::transactionType));
+            ps.setArray(3, BulkTransferRepository.textArray(con, rows, row -> row.userId().toString()));
+            ps.setArray(4, BulkTransferRepository.textArray(con, rows, row -> row.assetTypeId().toString()));
+            ps.setArray(5, BulkTransferRepository.textArray(con, rows, row -> row.amount().toPlainString()));
+            ps.setArray(6, BulkTransferRepository.textArray(con, rows, JournalRow::idempotencyKey));
+            ps.setArray(7, BulkTransferRepository.textArray(con, rows, JournalRow::failureReason));
+            ps.setArray(8, BulkTransferRepository.textArray(con, rows, row -> row.createdAt().toString()));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getString(1));
+        });
+        return inserted;
+    }
+
+    // DEBIT on the source and CREDIT on the target of every successful row
+    public int insertLedgerEntries(List<JournalRow> rows) {
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement("""
+                WITH t AS (
+                    SELECT * FROM unnest(CAST(? AS uuid[]), CAST(? AS uuid[]), CAST(? AS uuid[]),
+                                         CAST(? AS uuid[]), CAST(? AS uuid[]), CAST(? AS numeric[]),
+                                         CAST(? AS timestamp[]))
+                        AS t(tx_id, debit_id, credit_id, source_id, target_id, amount, created_at)
+                )
+                INSERT INTO ledger_entries (id, wallet_transaction_id, wallet_id, entry_type, amount, created_at)
+                SELECT debit_id, tx_id, source_id, 'DEBIT', amount, created_at FROM t
+                UNION ALL
+                SELECT credit_id, tx_id, target_id, 'CREDIT', amount, created_at FROM t
+                """)) {
+                ps.setArray(1, BulkTransferRepository.textArray(con, rows, row -> row.transactionId().toString()));
+                ps.setArray(2, BulkTransferRepository.textArray(con, rows, row -> row.debitEntryId().toString()));
+                ps.setArray(3, BulkTransferRepository.textArray(con, rows, row -> row.creditEntryId().toString()));
+                ps.setArray(4, BulkTransferRepository.textArray(con, rows, row -> row.sourceWalletId().toString()));
+                ps.setArray(5, BulkTransferRepository.textArray(con, rows, row -> row.targetWalletId().toString()));
+                ps.setArray(6, BulkTransferRepository.textArray(con, rows, row -> row.amount().toPlainString()));
+                ps.setArray(7, BulkTransferRepository.textArray(con, rows, row -> row.createdAt().toString()));
+                return ps.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.dinoventures.wallet.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One transfer decided by the balance engine. FAILED rows carry a failure reason and book no ledger entries.
+public record JournalRow(
+        UUID transactionId,
+        String transactionType,
+        UUID userId,
+        UUID assetTypeId,
+        BigDecimal amount,
+        String status,
+        String failureReason,
+        String idempotencyKey,
+        UUID sourceWalletId,
+        UUID targetWalletId,
+        UUID debitEntryId,
+        UUID creditEntryId,
+        LocalDateTime createdAt
+) {
+
+    public boolean succeeded() {
+        return "SUCCESS".equals(status);
+    }
+}
@@ -0,0 +1,99 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * wallet_outbox: change events written by WalletRepository.transfer in the transfer's own
+ * statement, drained by OutboxRelay. A statement trigger sends NOTIFY on the channel, which
+ * Postgres delivers when the inserting transaction commits.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    public static final String CHANNEL = "wallet_outbox";
+
+    // pg_try_advisory_xact_lock key: one relay drains at a time across instances
+    private static final long RELAY_LOCK = 0x77616c6c65746f62L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Idempotent: runs on every start, whether the relay is enabled or not (the transfer statement needs the table)
+    public void createSchema() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS wallet_outbox (
+                    id bigserial PRIMARY KEY,
+                    transaction_id uuid NOT NULL,
+                    transaction_type varchar(255) NOT NULL,
+                    asset_type_id uuid NOT NULL,
+                    source_wallet_id uuid NOT NULL,
+                    source_user_id uuid,
+                    source_balance numeric NOT NULL,
+                    target_wallet_id uuid NOT NULL,
+                    target_user_id uuid,
+                    target_balance numeric NOT NULL,
+                    created_at timestamp(6) NOT NULL
+                )
+                """);
+        // Identical notifications of one transaction are folded into one, so a batch commit wakes the relay once
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION wallet_outbox_notify() RETURNS trigger AS $$
+                BEGIN
+                    PERFORM pg_notify('%s', '');
+                    RETURN NULL;
+                END
+                $$ LANGUAGE plpgsql
+                """.formatted(CHANNEL));
+        jdbcTemplate.execute("CREATE OR REPLACE TRIGGER trg_wallet_outbox_notify AFTER INSERT ON wallet_outbox"
+                + " FOR EACH STATEMENT EXECUTE FUNCTION wallet_outbox_notify()");
+    }
+
+    // Must run inside the drain transaction: the lock is released at its end
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK));
+    }
+
+    // Oldest committed events first. A lower id still uncommitted belongs to other wallets
+    // (a wallet's events are written under its row lock), so skipping it keeps per-wallet order.
+    public List<BalanceChangeEvent> findOldest(int limit) {
+        return jdbcTemplate.query("""
+                SELECT o.id, o.transaction_id, o.transaction_type, a.code,
+                       o.source_wallet_id, o.source_user_id, o.source_balance,
+                       o.target_wallet_id, o.target_user_id, o.target_balance, o.created_at
+                FROM wallet_outbox o
+                JOIN asset_types a ON a.id = o.asset_type_id
+                ORDER BY o.id
+                LIMIT ?
+                """, (rs, rowNum) -> new BalanceChangeEvent(
+                rs.getLong(1),
+                rs.getObject(2, UUID.class),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getObject(5, UUID.class),
+                rs.getObject(6, UUID.class),
+                rs.getBigDecimal(7),
+                rs.getObject(8, UUID.class),
+                rs.getObject(9, UUID.class),
+                rs.getBigDecimal(10),
+                rs.getTimestamp(11).toLocalDateTime()), limit);
+    }
+
+    // By id, not by range: an event committed after findOldest below the last id is kept for the next drain
+    public int delete(List<BalanceChangeEvent> events) {
+        List<Long> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(event.id()));
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM wallet_outbox WHERE id = ANY(CAST(? AS bigint[]))");
+            ps.setArray(1, BulkTransferRepository.textArray(con, ids, String::valueOf));
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and checkpoints for the incremental ledger reconciliation.
+ *
+ * A wallet range is read in ONE statement, so each balance and the ledger
+ * entries it is compared with come from the same snapshot. Per wallet only the
+ * entries since its checkpoint are summed, through the
+ * (wallet_id, created_at) index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReconciliationRepository {
+
+    public static final UUID MIN_ID = new UUID(0L, 0L);
+    public static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record WalletDelta(
+            UUID walletId,
+            boolean systemWallet,
+            UUID assetTypeId,
+            String walletType,
+            BigDecimal balance,
+            boolean checkpointed,
+            BigDecimal openingBalance,   // checkpoint values, 0 when not checkpointed yet
+            BigDecimal checkpointNet,
+            BigDecimal settledNet,       // new entries created before the horizon
+            BigDecimal recentNet,        // new entries at or after the horizon
+            long entries
+    ) {}
+
+    // Upper bound of the next range of `size` wallets after `afterId`, or null if fewer remain
+    public UUID findRangeEnd(UUID afterId, int size) {
+        List<UUID> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM wallets WHERE id > ? ORDER BY id OFFSET ? LIMIT 1",
+                UUID.class, afterId, size - 1);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    // Wallets with afterId < id <= throughId
+    public List<WalletDelta> findDeltas(UUID afterId, UUID throughId, LocalDateTime horizon) {
+        Timestamp horizonTs = Timestamp.valueOf(horizon);
+        List<WalletDelta> deltas = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT w.id, w.owner_user_id IS NULL, w.asset_type_id, w.wallet_type, w.balance,
+                       c.wallet_id IS NOT NULL, COALESCE(c.opening_balance, 0), COALESCE(c.ledger_net, 0),
+                       COALESCE(d.settled_net, 0), COALESCE(d.recent_net, 0), COALESCE(d.entries, 0)
+                FROM wallets w
+                LEFT JOIN reconciliation_checkpoints c ON c.wallet_id = w.id
+                LEFT JOIN LATERAL (
+                    SELECT SUM(CASE WHEN le.entry_type = 'CREDIT' THEN le.amount ELSE -le.amount END)
+                               FILTER (WHERE le.created_at < ?) AS settled_net,
+                           SUM(CASE WHEN le.entry_type = 'CREDIT' THEN le.amount ELSE -le.amount END)
+                               FILTER (WHERE le.created_at >= ?) AS recent_net,
+                           COUNT(*) AS entries
+                    FROM ledger_entries le
+                    WHERE le.wallet_id = w.id
+                    AND le.created_at >= COALESCE(c.checked_through, '-infinity'::timestamp)
+                ) d ON true
+                WHERE w.id > ? AND w.id <= ?
+                """, rs -> {
+            deltas.add(new WalletDelta(
+                    rs.getObject(1, UUID.class), rs.getBoolean(2), rs.getObject(3, UUID.class),
+                    rs.getString(4), rs.getBigDecimal(5), rs.getBoolean(6), rs.getBigDecimal(7),
+                    rs.getBigDecimal(8), rs.getBigDecimal(9), rs.getBigDecimal(10), rs.getLong(11)));
+        }, horizonTs, horizonTs, afterId, throughId);
+        return deltas;
+    }
+
+    public record Checkpoint(UUID walletId, BigDecimal openingBalance, BigDecimal ledgerNet) {}
+
+    public void saveCheckpoints(List<Checkpoint> checkpoints, LocalDateTime checkedThrough, LocalDateTime now) {
+        Timestamp through = Timestamp.valueOf(checkedThrough);
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO reconciliation_checkpoints (wallet_id, opening_balance, ledger_net, checked_through, updated_at)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (wallet_id) DO UPDATE
+                SET ledger_net = EXCLUDED.ledger_net,
+                    checked_through = EXCLUDED.checked_through,
+                    updated_at = EXCLUDED.updated_at
+                """, checkpoints, 1000, (ps, checkpoint) -> {
+            ps.setObject(1, checkpoint.walletId());
+            ps.setBigDecimal(2, checkpoint.openingBalance());
+            ps.setBigDecimal(3, checkpoint.ledgerNet());
+            ps.setTimestamp(4, through);
+            ps.setTimestamp(5, updatedAt);
+        });
+    }
+
+    // Horizon of the latest run: every ledger entry before it is folded into a checkpoint
+    public LocalDateTime findLastCheckedThrough() {
+        Timestamp through = jdbcTemplate.queryForObject(
+                "SELECT MAX(checked_through) FROM reconciliation_checkpoints", Timestamp.class);
+        return through == null ? null : through.toLocalDateTime();
+    }
+}
@@ -0,0 +1,107 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.dinoventures.wallet.repository.BulkTransferRepository.textArray;
+
+/**
+ * Startup seeding of reference data for WalletDataInitializer: one statement per table,
+ * each inserting only the rows that are missing, so repeated and concurrent starts
+ * leave the data unchanged.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SeedRepository {
+
+    // pg_advisory_xact_lock key: instances starting together seed one after the other
+    private static final long SEED_LOCK = 0x77616c6c65747364L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record SystemWalletSeed(UUID id, String assetCode, String walletType, int shardIndex, BigDecimal balance) {
+    }
+
+    // Must run inside the seeding transaction: the lock is released at its end
+    public void lock() {
+        jdbcTemplate.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(?)", Integer.class, SEED_LOCK);
+    }
+
+    public int insertMissingAssets(List<UUID> ids, List<String> codes, List<String> displayNames, LocalDateTime now) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO asset_types (id, code, display_name, created_at)
+                SELECT a.id, a.code, a.display_name, ?
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS text[]), CAST(? AS text[])) AS a(id, code, display_name)
+                ON CONFLICT (code) DO NOTHING
+                """);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setArray(2, textArray(con, ids, UUID::toString));
+            ps.setArray(3, textArray(con, codes, String::valueOf));
+            ps.setArray(4, textArray(con, displayNames, String::valueOf));
+            return ps;
+        });
+    }
+
+    // Tops users up to names.size(): the i-th name is inserted only while fewer than i users exist
+    public int insertMissingUsers(List<UUID> ids, List<String> names, LocalDateTime now) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO users (id, name, created_at)
+                SELECT u.id, u.name, ?
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS text[])) WITH ORDINALITY AS u(id, name, position)
+                WHERE u.position > (SELECT count(*) FROM users)
+                """);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setArray(2, textArray(con, ids, UUID::toString));
+            ps.setArray(3, textArray(con, names, String::valueOf));
+            return ps;
+        });
+    }
+
+    // System wallets have no owner, so uk_wallet_user_asset_type does not cover them:
+    // a shard is skipped when a wallet of the same asset, type and shard already exists.
+    // Seed balances apply to a new logical wallet only; shards added to an existing one
+    // start empty (the balance is already in its other shards) and are funded by SystemWalletRebalancer
+    public int insertMissingSystemWallets(List<SystemWalletSeed> seeds, LocalDateTime now) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO wallets (id, owner_user_id, asset_type_id, wallet_type, shard_index, balance, created_at, updated_at)
+                SELECT s.id, NULL, a.id, s.wallet_type, s.shard_index,
+                       CASE WHEN EXISTS (
+                           SELECT 1 FROM wallets w
+                           WHERE w.owner_user_id IS NULL
+                           AND w.asset_type_id = a.id
+                           AND w.wallet_type = s.wallet_type
+                       ) THEN 0 ELSE s.balance END, ?, ?
+                FROM unnest(CAST(? AS uuid[]), CAST(? AS text[]), CAST(? AS text[]), CAST(? AS integer[]), CAST(? AS numeric[]))
+                     AS s(id, asset_code, wallet_type, shard_index, balance)
+                JOIN asset_types a ON a.code = s.asset_code
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM wallets w
+                    WHERE w.owner_user_id IS NULL
+                    AND w.asset_type_id = a.id
+                    AND w.wallet_type = s.wallet_type
+                    AND w.shard_index = s.shard_index
+                )
+                """);
+            Timestamp timestamp = Timestamp.valueOf(now);
+            ps.setTimestamp(1, timestamp);
+            ps.setTimestamp(2, timestamp);
+            ps.setArray(3, textArray(con, seeds, seed -> seed.id().toString()));
+            ps.setArray(4, textArray(con, seeds, SystemWalletSeed::assetCode));
+            ps.setArray(5, textArray(con, seeds, SystemWalletSeed::walletType));
+            ps.setArray(6, textArray(con, seeds, seed -> Integer.toString(seed.shardIndex())));
+            ps.setArray(7, textArray(con, seeds, seed -> seed.balance().toPlainString()));
+            return ps;
+        });
+    }
+}
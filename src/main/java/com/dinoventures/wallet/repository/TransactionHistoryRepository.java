@@ -0,0 +1,65 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.dto.TransactionSummary;
+import com.dinoventures.wallet.utils.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keyset (seek) pages of a user's transaction history, newest first.
+ *
+ * Rows are projected straight into TransactionSummary, never loaded as entities.
+ * The next page starts strictly after the last (created_at, id) seen, so with the
+ * history indexes every page is an index range scan of `limit` rows, no OFFSET.
+ * Filters are only added to the query when set, which keeps the predicate on the
+ * leading index columns instead of an "(:param IS NULL OR ...)" plan.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionHistoryRepository {
+
+    private final EntityManager entityManager;
+
+    public List<TransactionSummary> findPage(UUID userId, UUID assetTypeId, String transactionType,
+                                             KeysetCursor.Position after, int limit) {
+        StringBuilder jpql = new StringBuilder("""
+                SELECT new com.dinoventures.wallet.dto.TransactionSummary(
+                    t.id, t.transactionType, a.code, t.amount, t.status, t.createdAt)
+                FROM WalletTransaction t JOIN t.assetType a
+                WHERE t.user.id = :userId
+                """);
+        if (assetTypeId != null) {
+            jpql.append(" AND t.assetType.id = :assetTypeId");
+        }
+        if (transactionType != null) {
+            jpql.append(" AND t.transactionType = :transactionType");
+        }
+        if (after != null) {
+            // The plain bound on created_at is implied by the row comparison, but only it lets
+            // the planner skip the partitions newer than the cursor
+            jpql.append(" AND t.createdAt <= :afterCreatedAt AND (t.createdAt, t.id) < (:afterCreatedAt, :afterId)");
+        }
+        jpql.append(" ORDER BY t.createdAt DESC, t.id DESC");
+
+        TypedQuery<TransactionSummary> query = entityManager
+                .createQuery(jpql.toString(), TransactionSummary.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        if (assetTypeId != null) {
+            query.setParameter("assetTypeId", assetTypeId);
+        }
+        if (transactionType != null) {
+            query.setParameter("transactionType", transactionType);
+        }
+        if (after != null) {
+            query.setParameter("afterCreatedAt", after.createdAt());
+            query.setParameter("afterId", after.id());
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,17 @@
+package com.dinoventures.wallet.repository;
+
+import java.math.BigDecimal;
+
+// Result row of WalletRepository.transfer
+public interface TransferOutcome {
+
+    BigDecimal getSourceBalance();        // null when the debit was rejected
+
+    BigDecimal getTargetBalance();
+
+    BigDecimal getSourceSnapshotBalance(); // source balance before the statement, null if missing
+
+    Long getTargetFound();
+
+    Long getLedgerEntries();
+}
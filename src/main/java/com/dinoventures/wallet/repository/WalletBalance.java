@@ -0,0 +1,12 @@
+package com.dinoventures.wallet.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Result row of WalletRepository.lockBalances
+public interface WalletBalance {
+
+    UUID getId();
+
+    BigDecimal getBalance();
+}
@@ -1,5 +1,6 @@
 package com.dinoventures.wallet.repository;
 
+import com.dinoventures.wallet.dto.UserAssetBalance;
 import com.dinoventures.wallet.entity.User;
 import com.dinoventures.wallet.entity.Wallet;
 import com.dinoventures.wallet.entity.AssetType;
@@ -8,10 +9,12 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.LockModeType;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,9 +23,28 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
 
     Optional<Wallet> findByOwnerUserAndAssetTypeAndWalletType(User ownerUser, AssetType assetType, String walletType);
 
-    List<Wallet> findAllByOwnerUser(User user);
+    // Balances of a user's wallets with their asset code: one query, no Wallet or AssetType entities
+    @Query("""
+        SELECT new com.dinoventures.wallet.dto.UserAssetBalance(a.code, w.balance)
+        FROM Wallet w JOIN w.assetType a
+        WHERE w.ownerUser.id = :userId
+        ORDER BY a.code
+        """)
+    List<UserAssetBalance> findBalancesByUserId(@Param("userId") UUID userId);
 
-    Optional<Wallet> findByOwnerUserIsNullAndAssetTypeAndWalletType(AssetType assetType, String walletType);
+    // All shards of a logical system wallet (TREASURY / BONUS / REVENUE), shard 0 first
+    List<Wallet> findAllByOwnerUserIsNullAndAssetTypeAndWalletTypeOrderByShardIndexAsc(AssetType assetType, String walletType);
+
+    // Legacy single system wallets (created before sharding) become shard 0
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE wallets
+        SET shard_index = 0
+        WHERE owner_user_id IS NULL
+        AND shard_index IS NULL
+        """, nativeQuery = true)
+    int assignLegacySystemWalletsToShardZero();
 
 
     // Atomic debit with balance validation in single UPDATE
@@ -38,6 +60,150 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
         """, nativeQuery = true)
     int atomicDebit(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
 
+    // Whole transfer in ONE round trip: conditional debit, credit, transaction row and both
+    // ledger rows as a data-modifying CTE. The debit keeps atomicDebit's "balance >= amount"
+    // guard and only fires when the target exists, so either everything is written or nothing.
+    // Returns the new balances (null sourceBalance = debit rejected) plus the source balance
+    // as seen by the statement's snapshot, used for the insufficient-funds message.
+    // With outbox set, the change event for OutboxRelay is written by the same statement.
+    @Transactional
+    @Query(value = """
+        WITH target AS (
+            SELECT id FROM wallets WHERE id = :toWalletId
+        ), debit AS (
+            UPDATE wallets
+            SET balance = balance - :amount,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = :fromWalletId
+            AND balance >= :amount
+            AND EXISTS (SELECT 1 FROM target)
+            RETURNING balance, owner_user_id
+        ), credit AS (
+            UPDATE wallets
+            SET balance = balance + :amount,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = :toWalletId
+            AND EXISTS (SELECT 1 FROM debit)
+            RETURNING balance, owner_user_id
+        ), tx AS (
+            INSERT INTO wallet_transactions
+                (id, transaction_type, user_id, asset_type_id, amount, status,
+                 idempotency_key, created_at, updated_at)
+            SELECT CAST(:transactionId AS uuid), CAST(:transactionType AS varchar), CAST(:userId AS uuid),
+                   CAST(:assetTypeId AS uuid), CAST(:amount AS numeric), 'SUCCESS',
+                   CAST(:idempotencyKey AS varchar), CAST(:now AS timestamp), CAST(:now AS timestamp)
+            FROM credit
+            RETURNING id
+        ), ledger AS (
+            INSERT INTO ledger_entries (id, wallet_transaction_id, wallet_id, entry_type, amount, created_at)
+            SELECT CAST(:debitEntryId AS uuid), tx.id, CAST(:fromWalletId AS uuid), 'DEBIT',
+                   CAST(:amount AS numeric), CAST(:now AS timestamp) FROM tx
+            UNION ALL
+            SELECT CAST(:creditEntryId AS uuid), tx.id, CAST(:toWalletId AS uuid), 'CREDIT',
+                   CAST(:amount AS numeric), CAST(:now AS timestamp) FROM tx
+            RETURNING id
+        ), outbox AS (
+            INSERT INTO wallet_outbox
+                (transaction_id, transaction_type, asset_type_id, source_wallet_id, source_user_id,
+                 source_balance, target_wallet_id, target_user_id, target_balance, created_at)
+            SELECT tx.id, CAST(:transactionType AS varchar), CAST(:assetTypeId AS uuid),
+                   CAST(:fromWalletId AS uuid), debit.owner_user_id, debit.balance,
+                   CAST(:toWalletId AS uuid), credit.owner_user_id, credit.balance, CAST(:now AS timestamp)
+            FROM tx, debit, credit
+            WHERE CAST(:outbox AS boolean)
+            RETURNING id
+        )
+        SELECT
+            (SELECT balance FROM debit) AS "sourceBalance",
+            (SELECT balance FROM credit) AS "targetBalance",
+            (SELECT balance FROM wallets WHERE id = :fromWalletId) AS "sourceSnapshotBalance",
+            (SELECT COUNT(*) FROM target) AS "targetFound",
+            (SELECT COUNT(*) FROM ledger) AS "ledgerEntries"
+        """, nativeQuery = true)
+    TransferOutcome transfer(@Param("fromWalletId") UUID fromWalletId,
+                             @Param("toWalletId") UUID toWalletId,
+                             @Param("amount") BigDecimal amount,
+                             @Param("transactionId") UUID transactionId,
+                             @Param("transactionType") String transactionType,
+                             @Param("userId") UUID userId,
+                             @Param("assetTypeId") UUID assetTypeId,
+                             @Param("idempotencyKey") String idempotencyKey,
+                             @Param("debitEntryId") UUID debitEntryId,
+                             @Param("creditEntryId") UUID creditEntryId,
+                             @Param("now") LocalDateTime now,
+                             @Param("outbox") boolean outbox);
+
+    // Shard-to-shard move of a system wallet (SystemWalletRebalancer), booked like a transfer:
+    // the same conditional debit, a REBALANCE transaction without user or idempotency key, and
+    // a DEBIT / CREDIT ledger pair. Returns the ledger entries written (0 = donor short, nothing written).
+    @Transactional
+    @Query(value = """
+        WITH target AS (
+            SELECT id FROM wallets WHERE id = :toWalletId
+        ), debit AS (
+            UPDATE wallets
+            SET balance = balance - :amount,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = :fromWalletId
+            AND balance >= :amount
+            AND EXISTS (SELECT 1 FROM target)
+            RETURNING id
+        ), credit AS (
+            UPDATE wallets
+            SET balance = balance + :amount,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = :toWalletId
+            AND EXISTS (SELECT 1 FROM debit)
+            RETURNING id
+        ), tx AS (
+            INSERT INTO wallet_transactions
+                (id, transaction_type, user_id, asset_type_id, amount, status, created_at, updated_at)
+            SELECT CAST(:transactionId AS uuid), 'REBALANCE', NULL, CAST(:assetTypeId AS uuid),
+                   CAST(:amount AS numeric), 'SUCCESS', CAST(:now AS timestamp), CAST(:now AS timestamp)
+            FROM credit
+            RETURNING id
+        ), ledger AS (
+            INSERT INTO ledger_entries (id, wallet_transaction_id, wallet_id, entry_type, amount, created_at)
+            SELECT CAST(:debitEntryId AS uuid), tx.id, CAST(:fromWalletId AS uuid), 'DEBIT',
+                   CAST(:amount AS numeric), CAST(:now AS timestamp) FROM tx
+            UNION ALL
+            SELECT CAST(:creditEntryId AS uuid), tx.id, CAST(:toWalletId AS uuid), 'CREDIT',
+                   CAST(:amount AS numeric), CAST(:now AS timestamp) FROM tx
+            RETURNING id
+        )
+        SELECT COUNT(*) FROM ledger
+        """, nativeQuery = true)
+    long rebalance(@Param("fromWalletId") UUID fromWalletId,
+                   @Param("toWalletId") UUID toWalletId,
+                   @Param("amount") BigDecimal amount,
+                   @Param("transactionId") UUID transactionId,
+                   @Param("assetTypeId") UUID assetTypeId,
+                   @Param("debitEntryId") UUID debitEntryId,
+                   @Param("creditEntryId") UUID creditEntryId,
+                   @Param("now") LocalDateTime now);
+
+    // Row locks on two wallets, always taken in id order: two transfers between the same pair
+    // in opposite directions queue on the first lock instead of deadlocking on each other's second.
+    // Must run inside the transfer's transaction (the locks are held until it ends).
+    @Query(value = """
+        SELECT id FROM wallets
+        WHERE id IN (:firstWalletId, :secondWalletId)
+        ORDER BY id
+        FOR UPDATE
+        """, nativeQuery = true)
+    List<UUID> lockInIdOrder(@Param("firstWalletId") UUID firstWalletId,
+                             @Param("secondWalletId") UUID secondWalletId);
+
+    // Row locks on the shards of a system wallet, taken in id order, with their balances as locked.
+    // Must run inside the caller's transaction (SystemWalletRebalancer.fundShard).
+    @Query(value = """
+        SELECT id AS "id", balance AS "balance" FROM wallets
+        WHERE id IN (:walletIds)
+        ORDER BY id
+        FOR UPDATE
+        """, nativeQuery = true)
+    List<WalletBalance> lockBalances(@Param("walletIds") List<UUID> walletIds);
+
     // Atomic credit operation
     // Returns: number of rows updated (1 = success, 0 = wallet not found)
     @Modifying
@@ -1,12 +1,33 @@
 package com.dinoventures.wallet.repository;
 
 import com.dinoventures.wallet.entity.WalletTransaction;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, UUID> {
 
-    Optional<WalletTransaction> findByIdempotencyKey(String idempotencyKey);
+    // The key row carries created_at, so only the partition holding the transaction is probed.
+    // Empty when the key is unknown or its transaction has been archived.
+    @Query(value = """
+            SELECT t.status FROM wallet_idempotency_keys k
+            JOIN wallet_transactions t ON t.id = k.transaction_id AND t.created_at = k.created_at
+            WHERE k.idempotency_key = :idempotencyKey
+            """, nativeQuery = true)
+    Optional<String> findStatusByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    @Query(value = "SELECT COUNT(*) FROM wallet_idempotency_keys", nativeQuery = true)
+    long countIdempotencyKeys();
+
+    // Streamed with a fetch size so warming the idempotency filter never loads every key at once;
+    // must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT idempotency_key FROM wallet_idempotency_keys", nativeQuery = true)
+    Stream<String> streamAllIdempotencyKeys();
 }
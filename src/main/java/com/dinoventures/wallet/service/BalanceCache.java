@@ -0,0 +1,246 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.dto.UserAssetBalance;
+import com.dinoventures.wallet.dto.UserBalancesResponse;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of the balances endpoint, with a content ETag for conditional GETs.
+ *
+ * Entries are only dropped after the commit that changed the user's balances
+ * (evictAfterCommit), so the cache never serves a balance the database does not
+ * hold yet. An eviction leaves a versioned marker: a miss that read the database
+ * before that commit but finishes after it sees the version moved and does not
+ * store its outdated result.
+ *
+ * Writes on other instances do not evict here; ttl-ms bounds how long such an
+ * entry can be served. A sample of hits is re-read from the primary and compared
+ * (wallet.balance.cache.stale), and wallet.balance.cache.age shows how old served
+ * entries are.
+ *
+ * The same after-commit hook tells change listeners (BalanceStreamRegistry) which
+ * users' balances a commit changed, whether the cache itself is enabled or not.
+ */
+@Slf4j
+@Component
+public class BalanceCache {
+
+    // How long an eviction marker outlives the commit, to catch loads still in flight
+    private static final long MARKER_RETENTION_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<Collection<UUID>>> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private final Counter verified;
+    private final Counter stale;
+    private final DistributionSummary entryAge;
+
+    @Value("${wallet.balance-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.balance-cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${wallet.balance-cache.ttl-ms:30000}")
+    private long ttlMillis;
+
+    @Value("${wallet.balance-cache.verify-sample-rate:0.001}")
+    private double verifySampleRate;
+
+    public BalanceCache(MeterRegistry meterRegistry) {
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.notModified = requestCounter(meterRegistry, "not_modified");
+        this.verified = Counter.builder("wallet.balance.cache.verified")
+                .description("Cache hits re-read from the primary to check for staleness")
+                .register(meterRegistry);
+        this.stale = Counter.builder("wallet.balance.cache.stale")
+                .description("Verified cache hits that differed from the primary")
+                .register(meterRegistry);
+        this.entryAge = DistributionSummary.builder("wallet.balance.cache.age")
+                .description("Age of cache entries when served")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.cache.size", entries, Map::size)
+                .description("Users with cached balances or eviction markers")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String result) {
+        return Counter.builder("wallet.balance.cache.requests")
+                .description("Balance reads by how they were answered")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public record CachedBalances(UserBalancesResponse balances, String etag) {}
+
+    // Cached balances of the user, or the loader's result (stored unless a commit evicted meanwhile)
+    public CachedBalances get(String userId, Supplier<UserBalancesResponse> loader) {
+        UUID id = NullSafeUtils.safeParseUUID(userId);
+        if (!enabled || id == null) {
+            return snapshot(loader.get());
+        }
+
+        long now = System.nanoTime();
+        Entry entry = entries.get(id);
+        if (entry != null && entry.value() != null && now - entry.storedAt() < TimeUnit.MILLISECONDS.toNanos(ttlMillis)) {
+            hits.increment();
+            entryAge.record(TimeUnit.NANOSECONDS.toMillis(now - entry.storedAt()));
+            if (verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate) {
+                return verify(id, entry, loader);
+            }
+            return entry.value();
+        }
+
+        misses.increment();
+        // Read the version before the database: an eviction during the load makes the result unstorable
+        long version = entry == null ? 0 : entry.version();
+        // After an eviction the replica may not have the commit yet, and the result is kept for ttl-ms
+        boolean evicted = entry != null && entry.value() == null;
+        CachedBalances loaded = snapshot(evicted ? ReadRouting.onPrimary(loader) : loader.get());
+        store(id, version, loaded);
+        return loaded;
+    }
+
+    // True if the client's If-None-Match already names these balances
+    public boolean notModified(CachedBalances cached, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*") || candidate.equals(cached.etag()) || candidate.equals("W/" + cached.etag())) {
+                notModified.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Called after each commit with the users whose balances it changed
+    public void addChangeListener(Consumer<Collection<UUID>> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void evictAfterCommit(UUID userId) {
+        if (userId != null) {
+            evictAllAfterCommit(List.of(userId));
+        }
+    }
+
+    // One synchronization for a whole batch of users
+    public void evictAllAfterCommit(Collection<UUID> userIds) {
+        if (userIds.isEmpty() || (!enabled && changeListeners.isEmpty())) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed(userIds);
+            }
+        });
+    }
+
+    private void committed(Collection<UUID> userIds) {
+        if (enabled) {
+            userIds.forEach(this::evict);
+        }
+        changeListeners.forEach(listener -> listener.accept(userIds));
+    }
+
+    @Scheduled(initialDelayString = "${wallet.balance-cache.sweep-interval-ms:10000}",
+            fixedDelayString = "${wallet.balance-cache.sweep-interval-ms:10000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        entries.values().removeIf(entry ->
+                now - entry.storedAt() > (entry.value() == null ? Math.max(ttlNanos, MARKER_RETENTION_NANOS) : ttlNanos));
+    }
+
+    private CachedBalances verify(UUID userId, Entry entry, Supplier<UserBalancesResponse> loader) {
+        CachedBalances fresh = snapshot(ReadRouting.onPrimary(loader));
+        verified.increment();
+        if (fresh.etag().equals(entry.value().etag())) {
+            return entry.value();
+        }
+        stale.increment();
+        log.warn("Stale balance cache entry | userId={} | ageMs={}",
+                userId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.storedAt()));
+        store(userId, entry.version(), fresh);
+        return fresh;
+    }
+
+    private void evict(UUID userId) {
+        entries.compute(userId, (id, current) ->
+                new Entry(current == null ? 1 : current.version() + 1, null, System.nanoTime()));
+    }
+
+    private void store(UUID userId, long version, CachedBalances value) {
+        // When full, new users are served uncached until the sweep frees room
+        if (entries.size() >= maxEntries && !entries.containsKey(userId)) {
+            return;
+        }
+        entries.compute(userId, (id, current) -> (current == null ? 0 : current.version()) == version
+                ? new Entry(version, value, System.nanoTime())
+                : current);
+    }
+
+    // Balances in asset order, so equal balances always produce the same body and ETag
+    private static CachedBalances snapshot(UserBalancesResponse response) {
+        List<UserAssetBalance> sorted = response.balances() == null ? List.of() : response.balances().stream()
+                .sorted(Comparator.comparing(UserAssetBalance::assetCode, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+        UserBalancesResponse ordered = new UserBalancesResponse(response.userId(), sorted);
+        return new CachedBalances(ordered, etag(ordered));
+    }
+
+    // 64-bit FNV-1a over the response content: the same balances give the same tag on every instance
+    private static String etag(UserBalancesResponse response) {
+        StringBuilder content = new StringBuilder(NullSafeUtils.safeToString(response.userId()));
+        for (UserAssetBalance balance : response.balances()) {
+            content.append('|').append(balance.assetCode())
+                    .append('=').append(balance.balance() == null ? "" : balance.balance().toPlainString());
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : content.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // value == null marks an eviction; version only ever grows per user
+    private record Entry(long version, CachedBalances value, long storedAt) {}
+}
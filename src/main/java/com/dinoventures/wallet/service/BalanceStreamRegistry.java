@@ -0,0 +1,366 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.ResourceNotFoundException;
+import com.dinoventures.wallet.exception.ServiceBusyException;
+import com.dinoventures.wallet.exception.ValidationException;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live balance streams (Server-Sent Events), keyed by user.
+ *
+ * BalanceCache reports the users whose balances each commit of this instance changed.
+ * For a user with open streams the balances are then loaded once, from the primary,
+ * and offered to every stream of that user; changes arriving during the load are
+ * folded into one more load. An idle stream holds no thread, only its socket and a
+ * small Subscriber.
+ *
+ * Sends run on virtual threads, one at a time per stream, and a stream keeps only its
+ * latest unsent event: a client that reads slower than its balances change skips the
+ * intermediate ones instead of queueing them (wallet.balance.stream.coalesced). A
+ * stream whose send has been stuck longer than slow-consumer-timeout-ms is dropped.
+ * A comment line every heartbeat-interval-ms keeps proxies from closing idle streams
+ * and finds dead ones.
+ *
+ * Commits on other instances reach a stream when it reconnects (timeout-ms); for
+ * live updates, route a user's writes and streams to the same instance.
+ */
+@Slf4j
+@Component
+public class BalanceStreamRegistry {
+
+    private static final String EVENT_BALANCES = "balances";
+    private static final Pending HEARTBEAT = new Pending(null);
+    private static final int LOAD_ATTEMPTS = 3;
+
+    private final BalanceCache balanceCache;
+    private final WalletService walletService;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final ReferenceDataCache referenceDataCache;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<UUID, UserStreams> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter opened;
+    private final Counter rejected;
+    private final Counter balanceEvents;
+    private final Counter heartbeats;
+    private final Counter coalesced;
+    private final Counter loadFailures;
+
+    @Value("${wallet.balance-stream.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.balance-stream.max-connections:200000}")
+    private int maxConnections;
+
+    @Value("${wallet.balance-stream.max-per-user:16}")
+    private int maxPerUser;
+
+    @Value("${wallet.balance-stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${wallet.balance-stream.slow-consumer-timeout-ms:10000}")
+    private long slowConsumerTimeoutMillis;
+
+    @Value("${spring.jpa.open-in-view:true}")
+    private boolean openInView;
+
+    public BalanceStreamRegistry(BalanceCache balanceCache,
+                                 WalletService walletService,
+                                 DatabaseBulkhead databaseBulkhead,
+                                 ReferenceDataCache referenceDataCache,
+                                 MeterRegistry meterRegistry) {
+        this.balanceCache = balanceCache;
+        this.walletService = walletService;
+        this.databaseBulkhead = databaseBulkhead;
+        this.referenceDataCache = referenceDataCache;
+        this.meterRegistry = meterRegistry;
+
+        this.opened = Counter.builder("wallet.balance.stream.opened")
+                .description("Balance streams accepted")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("wallet.balance.stream.rejected")
+                .description("Balance streams refused by the connection limits")
+                .register(meterRegistry);
+        this.balanceEvents = eventCounter(meterRegistry, EVENT_BALANCES);
+        this.heartbeats = eventCounter(meterRegistry, "heartbeat");
+        this.coalesced = Counter.builder("wallet.balance.stream.coalesced")
+                .description("Balance events replaced by a newer one before the client took them")
+                .register(meterRegistry);
+        this.loadFailures = Counter.builder("wallet.balance.stream.load.failures")
+                .description("Changed balances that could not be loaded for their streams")
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.stream.connections", connections, AtomicInteger::get)
+                .description("Open balance streams")
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.stream.users", streams, Map::size)
+                .description("Users with at least one open balance stream")
+                .register(meterRegistry);
+    }
+
+    private static Counter eventCounter(MeterRegistry registry, String type) {
+        return Counter.builder("wallet.balance.stream.events")
+                .description("Events written to balance streams")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        balanceCache.addChangeListener(this::changed);
+        if (enabled && openInView) {
+            // The view's EntityManager would live, with its connection, as long as each stream
+            log.warn("Balance streams with spring.jpa.open-in-view=true: set it to false before opening many streams");
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        streams.values().forEach(user -> user.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    // Opens a stream; the first event carries the current balances unless lastEventId already names them
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        if (!enabled) {
+            throw new ServiceBusyException("Balance streams are disabled");
+        }
+        UUID id = NullSafeUtils.safeParseUUID(userId);
+        if (id == null) {
+            throw new ValidationException("Invalid user ID: " + userId);
+        }
+        if (referenceDataCache.findUser(id).isEmpty()) {
+            throw new ResourceNotFoundException("User not found: " + userId);
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException("Too many balance streams");
+        }
+
+        Subscriber subscriber = new Subscriber(id, new SseEmitter(timeoutMillis), lastEventId);
+        boolean[] added = {false};
+        UserStreams user = streams.compute(id, (key, current) -> {
+            UserStreams target = current == null ? new UserStreams() : current;
+            if (target.subscribers.size() < maxPerUser) {
+                added[0] = target.subscribers.add(subscriber);
+            }
+            return target.subscribers.isEmpty() ? null : target;
+        });
+        if (!added[0]) {
+            connections.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException("Too many balance streams for user " + userId);
+        }
+
+        subscriber.emitter.onCompletion(() -> remove(subscriber, "completed"));
+        subscriber.emitter.onTimeout(() -> remove(subscriber, "timeout"));
+        subscriber.emitter.onError(error -> remove(subscriber, "error"));
+        opened.increment();
+        // Initial balances; the user's other streams already hold them and skip the same ETag
+        refresh(id, user);
+        return subscriber.emitter;
+    }
+
+    @Scheduled(initialDelayString = "${wallet.balance-stream.heartbeat-interval-ms:15000}",
+            fixedDelayString = "${wallet.balance-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        long slowNanos = TimeUnit.MILLISECONDS.toNanos(slowConsumerTimeoutMillis);
+        for (UserStreams user : streams.values()) {
+            for (Subscriber subscriber : user.subscribers) {
+                long sendStarted = subscriber.sendStartedAt;
+                if (sendStarted != 0 && now - sendStarted > slowNanos) {
+                    evictSlow(subscriber);
+                } else {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    private void changed(Collection<UUID> userIds) {
+        for (UUID userId : userIds) {
+            UserStreams user = streams.get(userId);
+            if (user != null) {
+                refresh(userId, user);
+            }
+        }
+    }
+
+    // At most one load per user at a time; changes that arrive meanwhile cost one more load, not one each
+    private void refresh(UUID userId, UserStreams user) {
+        if (user.pendingChanges.getAndIncrement() == 0) {
+            senders.execute(() -> load(userId, user));
+        }
+    }
+
+    private void load(UUID userId, UserStreams user) {
+        String id = userId.toString();
+        int seen;
+        do {
+            seen = user.pendingChanges.get();
+            BalanceCache.CachedBalances balances = loadBalances(id);
+            if (balances != null) {
+                Pending event = new Pending(balances);
+                user.subscribers.forEach(subscriber -> subscriber.offer(event));
+            }
+        } while (user.pendingChanges.addAndGet(-seen) != 0);
+    }
+
+    // The change was just committed: read the primary, through the cache so the next poll is a hit
+    private BalanceCache.CachedBalances loadBalances(String userId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return balanceCache.get(userId, () -> databaseBulkhead.call(DatabaseBulkhead.OP_READ,
+                        () -> ReadRouting.onPrimary(() -> walletService.getUserBalances(userId))));
+            } catch (ServiceBusyException e) {
+                if (attempt == LOAD_ATTEMPTS) {
+                    loadFailures.increment();
+                    log.warn("Balance stream load failed | userId={} | error={}", userId, e.getMessage());
+                    return null;
+                }
+                try {
+                    Thread.sleep(200L * attempt);
+                } catch (InterruptedException interrupted) {
+                    return null;
+                }
+            } catch (Exception e) {
+                loadFailures.increment();
+                log.warn("Balance stream load failed | userId={} | error={}", userId, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private void evictSlow(Subscriber subscriber) {
+        if (remove(subscriber, "slow_consumer")) {
+            log.info("Slow balance stream dropped | userId={}", subscriber.userId);
+            // complete() waits for the stuck send to give up; never on the scheduler thread
+            senders.execute(subscriber.emitter::complete);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber, String reason) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        connections.decrementAndGet();
+        streams.computeIfPresent(subscriber.userId, (key, user) -> {
+            user.subscribers.remove(subscriber);
+            return user.subscribers.isEmpty() ? null : user;
+        });
+        Counter.builder("wallet.balance.stream.closed")
+                .description("Balance streams closed, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+
+    private static final class UserStreams {
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicInteger pendingChanges = new AtomicInteger();
+    }
+
+    // balances == null is a heartbeat
+    private record Pending(BalanceCache.CachedBalances balances) {}
+
+    private final class Subscriber {
+        final UUID userId;
+        final SseEmitter emitter;
+        final AtomicReference<Pending> pending = new AtomicReference<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile String lastEtag;
+        volatile long sendStartedAt;
+
+        Subscriber(UUID userId, SseEmitter emitter, String lastEventId) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastEtag = lastEventId;
+        }
+
+        // Latest wins: a newer balance replaces an unsent one, a heartbeat never replaces anything
+        void offer(Pending event) {
+            if (closed.get()) {
+                return;
+            }
+            if (event == HEARTBEAT) {
+                if (!pending.compareAndSet(null, HEARTBEAT)) {
+                    return;
+                }
+            } else {
+                if (event.balances().etag().equals(lastEtag)) {
+                    return;
+                }
+                lastEtag = event.balances().etag();
+                Pending replaced = pending.getAndSet(event);
+                if (replaced != null && replaced != HEARTBEAT) {
+                    coalesced.increment();
+                }
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (!closed.get()) {
+                Pending next = pending.getAndSet(null);
+                if (next == null) {
+                    sending.set(false);
+                    // An offer between the empty read and the reset found sending still set
+                    if (pending.get() == null || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                sendStartedAt = System.nanoTime();
+                try {
+                    if (next == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        heartbeats.increment();
+                    } else {
+                        emitter.send(SseEmitter.event()
+                                .name(EVENT_BALANCES)
+                                .id(next.balances().etag())
+                                .data(next.balances().balances(), MediaType.APPLICATION_JSON));
+                        balanceEvents.increment();
+                    }
+                } catch (Exception e) {
+                    // The client went away; the container completes the emitter
+                    remove(this, "error");
+                    return;
+                } finally {
+                    sendStartedAt = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.dto.BulkBonusItem;
+import com.dinoventures.wallet.dto.BulkBonusItemResult;
+import com.dinoventures.wallet.dto.BulkBonusResponse;
+import com.dinoventures.wallet.engine.BalanceEngine;
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.exception.ConflictException;
+import com.dinoventures.wallet.exception.ValidationException;
+import com.dinoventures.wallet.repository.BulkCreditRow;
+import com.dinoventures.wallet.repository.BulkTransferRepository;
+import com.dinoventures.wallet.repository.WalletRepository;
+import com.dinoventures.wallet.utils.Ids;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Season-end reward drops: grants many bonuses in one request.
+ *
+ * The items array is read from the request body one item at a time and never
+ * bound as a whole: items are validated as they arrive, grouped by asset, and a
+ * chunk is granted as soon as its asset has chunkSize pending items, each
+ * chunk in its own transaction with a fixed number of set-based statements:
+ * ensure user wallets, insert transactions (duplicate keys skipped by the unique
+ * constraint), ONE debit of the pool for the chunk total, one multi-row credit
+ * and one ledger insert. A chunk the pool cannot cover fails as a whole and
+ * writes nothing; the other chunks are unaffected.
+ *
+ * Items of an asset owned by the balance engine are failed: the engine's writer
+ * holds those balances in memory and must see every change to them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkBonusService {
+
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String TRANSACTION_TYPE = "BONUS";
+    private static final Set<String> SOURCE_WALLET_TYPES = Set.of("BONUS", "TREASURY");
+
+    private final BulkTransferRepository bulkTransferRepository;
+    private final WalletRepository walletRepository;
+    private final SystemWalletRouter systemWalletRouter;
+    private final SystemWalletRebalancer systemWalletRebalancer;
+    private final ReferenceDataCache referenceDataCache;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BalanceCache balanceCache;
+    private final ReadRouting readRouting;
+    private final BalanceEngine balanceEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${wallet.bulk-bonus.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${wallet.bulk-bonus.max-items:500000}")
+    private int maxItems;
+
+    public BulkBonusResponse grant(InputStream body) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return grant(parser);
+        } catch (JacksonException e) {
+            throw new ValidationException("Malformed bulk bonus request: " + e.getOriginalMessage());
+        }
+    }
+
+    // {"sourceWalletType", "reason", "items": [...]}: the items are granted while the array is read,
+    // so sourceWalletType has to come before them
+    private BulkBonusResponse grant(JsonParser parser) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new ValidationException("Request body must be a JSON object");
+        }
+        String sourceWalletType = "BONUS";
+        String reason = null;
+        List<BulkBonusItemResult> results = null;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "sourceWalletType" -> {
+                    String requested = sourceWalletType(parser.getValueAsString());
+                    if (results != null && !requested.equals(sourceWalletType)) {
+                        throw new ValidationException("sourceWalletType must come before items; items were granted from "
+                                + sourceWalletType + ", resend them with the same keys");
+                    }
+                    sourceWalletType = requested;
+                }
+                case "reason" -> reason = parser.getValueAsString();
+                case "items" -> {
+                    if (results != null) throw new ValidationException("Items given twice");
+                    if (parser.currentToken() != JsonToken.START_ARRAY) throw new ValidationException("Items must be an array");
+                    log.info("Bulk bonus | source={} reason={}", sourceWalletType, reason);
+                    results = grantItems(parser, sourceWalletType);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (results == null || results.isEmpty()) throw new ValidationException("Items required");
+
+        return summarize(results);
+    }
+
+    private static String sourceWalletType(String requested) {
+        String sourceWalletType = NullSafeUtils.isNullOrEmpty(requested) ? "BONUS" : requested.toUpperCase();
+        if (!SOURCE_WALLET_TYPES.contains(sourceWalletType)) {
+            throw new ValidationException("Source wallet must be BONUS or TREASURY");
+        }
+        return sourceWalletType;
+    }
+
+    // Reads the array one item at a time; a chunk is granted as soon as its asset has chunkSize
+    // pending items, so only the results and the keys seen so far grow with the request
+    private List<BulkBonusItemResult> grantItems(JsonParser parser, String sourceWalletType) {
+        List<BulkBonusItemResult> results = new ArrayList<>();
+        Set<String> seenKeys = new HashSet<>();
+        Map<AssetType, List<PendingItem>> pendingByAsset = new LinkedHashMap<>();
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (results.size() == maxItems) {
+                throw new ValidationException("Too many items: max " + maxItems
+                        + "; the first " + maxItems + " were processed, resend the rest with their keys");
+            }
+            BulkBonusItem item = objectMapper.readValue(parser, BulkBonusItem.class);
+            int index = results.size();
+            results.add(null);
+            AssetType asset = validate(item, index, seenKeys, results);
+            if (asset == null) continue;
+
+            List<PendingItem> pending = pendingByAsset.computeIfAbsent(asset, a -> new ArrayList<>());
+            pending.add(new PendingItem(index, item));
+            if (pending.size() == chunkSize) {
+                processChunk(asset, sourceWalletType, List.copyOf(pending), results);
+                pending.clear();
+            }
+        }
+
+        pendingByAsset.forEach((asset, pending) -> {
+            if (!pending.isEmpty()) {
+                processChunk(asset, sourceWalletType, pending, results);
+            }
+        });
+        return results;
+    }
+
+    // Fills in the result of an invalid or repeated item and returns null; otherwise the item's asset
+    private AssetType validate(BulkBonusItem item, int index, Set<String> seenKeys, List<BulkBonusItemResult> results) {
+        String error = validateItem(item);
+        if (error != null) {
+            results.set(index, failed(item, error));
+            return null;
+        }
+        if (!seenKeys.add(item.idempotencyKey())) {
+            results.set(index, result(item, STATUS_DUPLICATE, null, null, "Repeated in request"));
+            return null;
+        }
+        AssetType asset = referenceDataCache.findAsset(item.assetCode()).orElse(null);
+        if (asset == null) {
+            results.set(index, failed(item, "Unknown asset: " + item.assetCode()));
+            return null;
+        }
+        if (balanceEngine.handles(asset.getCode())) {
+            results.set(index, failed(item, "Bulk grants not supported for engine asset: " + asset.getCode()));
+            return null;
+        }
+        return asset;
+    }
+
+    private String validateItem(BulkBonusItem item) {
+        if (item == null) return "Item required";
+        if (NullSafeUtils.safeParseUUID(item.userId()) == null) return "Invalid userId format";
+        if (NullSafeUtils.isNullOrEmpty(item.assetCode())) return "Asset code required";
+        if (NullSafeUtils.safeToPositiveBigDecimal(item.amount()) == null) return "Amount must be positive";
+        if (NullSafeUtils.isNullOrEmpty(item.idempotencyKey())) return "Idempotency key required";
+        return null;
+    }
+
+    private void processChunk(AssetType asset, String sourceWalletType, List<PendingItem> chunk,
+                              List<BulkBonusItemResult> results) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    grantChunk(asset, sourceWalletType, chunk, results));
+        } catch (ConflictException e) {
+            log.warn("Bulk bonus chunk rejected | asset={} | items={} | reason={}",
+                    asset.getCode(), chunk.size(), e.getMessage());
+            chunk.forEach(p -> results.set(p.index(), failed(p.item(), e.getMessage())));
+        } catch (RuntimeException e) {
+            log.error("Bulk bonus chunk failed | asset={} | items={}", asset.getCode(), chunk.size(), e);
+            chunk.forEach(p -> results.set(p.index(), failed(p.item(), "Internal error")));
+        }
+    }
+
+    // Results are only written into the shared list once every statement has succeeded;
+    // a rollback leaves them to the caller's catch block
+    private void grantChunk(AssetType asset, String sourceWalletType, List<PendingItem> chunk,
+                            List<BulkBonusItemResult> results) {
+        LocalDateTime now = NullSafeUtils.safeNow();
+        Map<Integer, BulkBonusItemResult> chunkResults = new HashMap<>();
+
+        // 1. Users: one lookup for the chunk
+        Set<UUID> userIds = new HashSet<>();
+        chunk.forEach(p -> userIds.add(UUID.fromString(p.item().userId())));
+        Set<UUID> existingUsers = bulkTransferRepository.findExistingUserIds(userIds);
+
+        List<PendingItem> grantable = new ArrayList<>(chunk.size());
+        for (PendingItem p : chunk) {
+            if (existingUsers.contains(UUID.fromString(p.item().userId()))) {
+                grantable.add(p);
+            } else {
+                chunkResults.put(p.index(), failed(p.item(), "User not found: " + p.item().userId()));
+            }
+        }
+
+        if (!grantable.isEmpty()) {
+            grantToExistingUsers(asset, sourceWalletType, grantable, now, chunkResults);
+        }
+        chunkResults.forEach(results::set);
+    }
+
+    private void grantToExistingUsers(AssetType asset, String sourceWalletType, List<PendingItem> grantable,
+                                      LocalDateTime now, Map<Integer, BulkBonusItemResult> chunkResults) {
+        // 2. User wallets, created where missing
+        List<UUID> owners = grantable.stream()
+                .map(p -> UUID.fromString(p.item().userId()))
+                .distinct()
+                .toList();
+        List<UUID> newWalletIds = owners.stream().map(owner -> Ids.next()).toList();
+        Map<UUID, UUID> walletsByOwner = bulkTransferRepository.ensureUserWallets(
+                asset.getId(), owners, newWalletIds, now);
+
+        // 3. Transactions; keys already claimed are skipped by the insert itself
+        Map<PendingItem, BulkCreditRow> rowsByItem = new LinkedHashMap<>();
+        for (PendingItem p : grantable) {
+            BulkBonusItem item = p.item();
+            UUID userId = UUID.fromString(item.userId());
+            rowsByItem.put(p, new BulkCreditRow(Ids.next(), userId, walletsByOwner.get(userId),
+                    item.amount(), item.idempotencyKey(), Ids.next(), Ids.next()));
+        }
+        Set<UUID> inserted = bulkTransferRepository.insertTransactions(
+                List.copyOf(rowsByItem.values()), TRANSACTION_TYPE, asset.getId(), now);
+
+        List<BulkCreditRow> credits = new ArrayList<>(inserted.size());
+        Map<UUID, BigDecimal> amountsByWallet = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (BulkCreditRow row : rowsByItem.values()) {
+            if (inserted.contains(row.transactionId())) {
+                credits.add(row);
+                amountsByWallet.merge(row.walletId(), row.amount(), BigDecimal::add);
+                total = total.add(row.amount());
+            }
+        }
+
+        Map<UUID, BigDecimal> balances = Map.of();
+        if (!credits.isEmpty()) {
+            // 4. One debit of the pool, 5. one credit per wallet, 6. both ledger sides
+            Wallet source = debitPool(asset, sourceWalletType, total);
+            balances = bulkTransferRepository.creditWallets(amountsByWallet);
+            bulkTransferRepository.insertLedgerEntries(source.getId(), credits, now);
+            idempotencyGuard.recordAllAfterCommit(
+                    credits.stream().map(BulkCreditRow::idempotencyKey).toList(), "SUCCESS");
+            balanceCache.evictAllAfterCommit(credits.stream().map(BulkCreditRow::userId).toList());
+            // Read-your-writes: the credited users' next balance reads go to the primary
+            credits.forEach(row -> readRouting.recordWrite(row.userId()));
+        }
+
+        for (Map.Entry<PendingItem, BulkCreditRow> entry : rowsByItem.entrySet()) {
+            BulkBonusItem item = entry.getKey().item();
+            BulkCreditRow row = entry.getValue();
+            chunkResults.put(entry.getKey().index(), inserted.contains(row.transactionId())
+                    ? result(item, STATUS_SUCCESS, row.transactionId(), balances.get(row.walletId()), null)
+                    : result(item, STATUS_DUPLICATE, null, null, "Request already processed: " + item.idempotencyKey()));
+        }
+
+        log.info("Bulk bonus chunk | asset={} | granted={} | duplicates={} | total={}",
+                asset.getCode(), credits.size(), rowsByItem.size() - credits.size(), total);
+    }
+
+    // Same conditional UPDATE as a single transfer, for the chunk total; falls back across shards,
+    // and when no shard covers the total alone the others fund the preferred one
+    private Wallet debitPool(AssetType asset, String sourceWalletType, BigDecimal total) {
+        List<Wallet> shards = systemWalletRouter.route(asset, sourceWalletType, null);
+        for (Wallet shard : shards) {
+            if (walletRepository.atomicDebit(shard.getId(), total) == 1) {
+                return shard;
+            }
+        }
+        String reason = "BONUS".equals(sourceWalletType) ? "BONUS_POOL_EXHAUSTED" : "TREASURY_INSUFFICIENT";
+        if (shards.size() == 1) {
+            throw new ConflictException(reason + ": batch total " + total + " exceeds the " + sourceWalletType + " balance");
+        }
+        Map<UUID, BigDecimal> balances = systemWalletRebalancer.fundShard(asset, shards, total);
+        Wallet preferred = shards.get(0);
+        if (balances.getOrDefault(preferred.getId(), BigDecimal.ZERO).compareTo(total) >= 0
+                && walletRepository.atomicDebit(preferred.getId(), total) == 1) {
+            return preferred;
+        }
+        throw new ConflictException(reason + ": batch total " + total + " exceeds what the " + sourceWalletType
+                + " shards hold (" + SystemWalletRouter.describeShards(shards, balances) + ")");
+    }
+
+    private BulkBonusResponse summarize(List<BulkBonusItemResult> results) {
+        int succeeded = 0;
+        int duplicates = 0;
+        int failed = 0;
+        for (BulkBonusItemResult result : results) {
+            switch (result.status()) {
+                case STATUS_SUCCESS -> succeeded++;
+                case STATUS_DUPLICATE -> duplicates++;
+                default -> failed++;
+            }
+        }
+        log.info("Bulk bonus done | items={} | succeeded={} | duplicates={} | failed={}",
+                results.size(), succeeded, duplicates, failed);
+        return new BulkBonusResponse(results.size(), succeeded, duplicates, failed, results);
+    }
+
+    private record PendingItem(int index, BulkBonusItem item) {
+    }
+
+    private BulkBonusItemResult failed(BulkBonusItem item, String message) {
+        return result(item, STATUS_FAILED, null, null, message);
+    }
+
+    private BulkBonusItemResult result(BulkBonusItem item, String status, UUID transactionId,
+                                       BigDecimal newBalance, String message) {
+        return new BulkBonusItemResult(
+                item == null ? null : item.idempotencyKey(),
+                item == null ? null : item.userId(),
+                item == null ? null : item.assetCode(),
+                status, transactionId, newBalance, message);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps in-flight database work per operation class and, for transfers, per asset.
+ *
+ * A request first takes a permit of its own compartment (e.g. transfers on GOLD,
+ * or balance reads), then one of the global permits, which match the connection
+ * pool. A burst of slow GOLD spends can therefore only occupy its own share of
+ * connections; balance reads and other assets keep theirs. Semaphores are fair,
+ * so waiters are served in arrival order, and waiting is a park (cheap on virtual
+ * threads) instead of a blocked connection request. A request that cannot get a
+ * permit within the timeout is answered with 503.
+ */
+@Slf4j
+@Component
+public class DatabaseBulkhead {
+
+    public static final String OP_TRANSFER = "TRANSFER";
+    public static final String OP_READ = "READ";
+    public static final String OP_BULK = "BULK";
+
+    // Asset codes not in the reference cache share one compartment, so junk codes cannot grow the map
+    private static final String UNKNOWN_ASSET = "?";
+
+    private final ReferenceDataCache referenceDataCache;
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+    private final long acquireTimeoutMillis;
+    private final int transferPermitsPerAsset;
+    private final Map<String, Integer> classPermits;
+    private final boolean groupCommit;
+    private final Semaphore global;
+
+    private final Map<String, Semaphore> compartments = new ConcurrentHashMap<>();
+
+    public DatabaseBulkhead(ReferenceDataCache referenceDataCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.bulkhead.enabled:true}") boolean enabled,
+                            @Value("${wallet.bulkhead.acquire-timeout-ms:2000}") long acquireTimeoutMillis,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                            @Value("${wallet.bulkhead.transfer-permits-per-asset:4}") int transferPermitsPerAsset,
+                            @Value("${wallet.bulkhead.read-permits:3}") int readPermits,
+                            @Value("${wallet.bulkhead.bulk-permits:1}") int bulkPermits,
+                            @Value("${wallet.group-commit.enabled:false}") boolean groupCommit) {
+        this.referenceDataCache = referenceDataCache;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.transferPermitsPerAsset = Math.max(1, transferPermitsPerAsset);
+        this.classPermits = Map.of(
+                OP_READ, Math.max(1, readPermits),
+                OP_BULK, Math.max(1, bulkPermits));
+        this.groupCommit = groupCommit;
+        // Scheduled jobs and background threads use connections too; leave them one
+        this.global = new Semaphore(Math.max(1, poolSize - 1), true);
+        log.info("Database bulkhead | enabled={} | global={} | transferPerAsset={} | classes={}",
+                enabled, global.availablePermits(), this.transferPermitsPerAsset, classPermits);
+    }
+
+    public <T> T call(String operation, Supplier<T> work) {
+        return call(operation, null, work);
+    }
+
+    // assetCode only matters for OP_TRANSFER, whose compartments are per asset
+    public <T> T call(String operation, String assetCode, Supplier<T> work) {
+        // Group-committed transfers already share the committer's single connection;
+        // the pipeline queue is their bulkhead, and permits here would only shrink the batches
+        if (!enabled || (groupCommit && OP_TRANSFER.equals(operation))) {
+            return work.get();
+        }
+        String compartmentKey = compartmentKey(operation, assetCode);
+        Semaphore compartment = compartments.computeIfAbsent(compartmentKey,
+                key -> new Semaphore(permitsFor(operation), true));
+
+        long waitStart = System.nanoTime();
+        acquire(compartment, operation, compartmentKey);
+        try {
+            acquire(global, operation, compartmentKey);
+            try {
+                Timer.builder("wallet.bulkhead.wait")
+                        .description("Time spent waiting for database permits")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+                return work.get();
+            } finally {
+                global.release();
+            }
+        } finally {
+            compartment.release();
+        }
+    }
+
+    private void acquire(Semaphore semaphore, String operation, String compartmentKey) {
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for capacity");
+        }
+        if (!acquired) {
+            Counter.builder("wallet.bulkhead.rejections")
+                    .description("Requests turned away because their bulkhead stayed full")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Bulkhead full | compartment={} | waitedMs={}", compartmentKey, acquireTimeoutMillis);
+            throw new ServiceBusyException("Too many concurrent requests, retry later");
+        }
+    }
+
+    private String compartmentKey(String operation, String assetCode) {
+        if (!OP_TRANSFER.equals(operation)) {
+            return operation;
+        }
+        boolean known = assetCode != null && referenceDataCache.findAsset(assetCode).isPresent();
+        return OP_TRANSFER + ":" + (known ? assetCode : UNKNOWN_ASSET);
+    }
+
+    private int permitsFor(String operation) {
+        return OP_TRANSFER.equals(operation) ? transferPermitsPerAsset : classPermits.getOrDefault(operation, 1);
+    }
+}
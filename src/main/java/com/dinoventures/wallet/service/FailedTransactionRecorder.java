@@ -0,0 +1,208 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.repository.JournalRepository;
+import com.dinoventures.wallet.repository.JournalRow;
+import com.dinoventures.wallet.utils.Ids;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit trail of transfers rejected on the row-lock path (insufficient funds, exhausted pools).
+ *
+ * A rejection is decided by the failed conditional debit and then thrown as a
+ * ConflictException, which rolls its transaction back, so the FAILED row cannot be
+ * written there. It is queued here instead and a background thread inserts the queue
+ * in batches, each in its own transaction. The queue is bounded: when it is full the
+ * event is dropped and counted rather than slowing the request down.
+ *
+ * A recorded FAILED row claims its idempotency key, as the balance engine's do; a key
+ * claimed before the flush (a retry that succeeded) wins and the late row is skipped.
+ * A claim that commits while the batch is being inserted fails the batch on the key's
+ * unique constraint; the batch is retried once, then written one row at a time.
+ */
+@Slf4j
+@Component
+public class FailedTransactionRecorder {
+
+    private final JournalRepository journalRepository;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter recorded;
+    private final Counter droppedFull;
+    private final Counter skipped;
+    private final Counter droppedError;
+    private final Timer lag;
+    private final DistributionSummary batchSizes;
+
+    @Value("${wallet.failure-recorder.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${wallet.failure-recorder.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${wallet.failure-recorder.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    private BlockingQueue<PendingFailure> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public FailedTransactionRecorder(JournalRepository journalRepository,
+                                     IdempotencyGuard idempotencyGuard,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry) {
+        this.journalRepository = journalRepository;
+        this.idempotencyGuard = idempotencyGuard;
+        this.transactionTemplate = transactionTemplate;
+
+        this.recorded = outcomeCounter(meterRegistry, "recorded");
+        this.droppedFull = outcomeCounter(meterRegistry, "dropped_queue_full");
+        this.skipped = outcomeCounter(meterRegistry, "skipped_key_claimed");
+        this.droppedError = outcomeCounter(meterRegistry, "dropped_error");
+        this.lag = Timer.builder("wallet.failures.lag")
+                .description("Time from a rejection to the commit of its FAILED row")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("wallet.failures.batch.size")
+                .description("FAILED rows inserted per recorder transaction")
+                .register(meterRegistry);
+        Gauge.builder("wallet.failures.queue.depth", this, recorder -> recorder.queue == null ? 0 : recorder.queue.size())
+                .description("Rejections waiting to be recorded")
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("wallet.failures")
+                .description("Rejected transfers by what happened to their FAILED row")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        flusher = new Thread(this::run, "failure-recorder");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Whatever is still queued is written before the context closes
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<PendingFailure> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    // Never blocks: a full queue drops the event
+    public void record(String transactionType, User user, AssetType asset, BigDecimal amount,
+                       String reason, String idempotencyKey) {
+        JournalRow row = new JournalRow(Ids.next(), transactionType, user.getId(), asset.getId(), amount,
+                "FAILED", reason, idempotencyKey, null, null, null, null, NullSafeUtils.safeNow());
+        if (!queue.offer(new PendingFailure(row, System.nanoTime()))) {
+            droppedFull.increment();
+        }
+    }
+
+    private void run() {
+        List<PendingFailure> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingFailure first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // stop() drains what is left
+                running = false;
+                queue.addAll(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingFailure> batch) {
+        List<JournalRow> rows = batch.stream().map(PendingFailure::row).toList();
+        try {
+            List<String> inserted;
+            try {
+                inserted = insert(rows);
+            } catch (DataIntegrityViolationException e) {
+                // A key claimed by another transaction after NOT EXISTS checked it fails the whole
+                // statement; the retry sees the claim and skips the row
+                log.debug("Recording rejected transactions raced a key claim, retrying | rows={}", rows.size());
+                try {
+                    inserted = insert(rows);
+                } catch (DataIntegrityViolationException again) {
+                    inserted = insertEach(rows);
+                }
+            }
+            long now = System.nanoTime();
+            batch.forEach(pending -> lag.record(now - pending.queuedAt(), TimeUnit.NANOSECONDS));
+            recorded.increment(inserted.size());
+            skipped.increment(rows.size() - inserted.size());
+            batchSizes.record(inserted.size());
+        } catch (Exception e) {
+            // Losing the audit rows is preferable to blocking rejections behind a failing database
+            droppedError.increment(rows.size());
+            log.error("Failed to record rejected transactions | rows={} | error={}", rows.size(), e.getMessage());
+        }
+    }
+
+    private List<String> insert(List<JournalRow> rows) {
+        return transactionTemplate.execute(status -> {
+            List<String> keys = journalRepository.insertFailedTransactions(rows);
+            idempotencyGuard.recordAllAfterCommit(keys, "FAILED");
+            return keys;
+        });
+    }
+
+    // Last resort after two failed batches: a row whose key keeps being claimed only skips itself
+    private List<String> insertEach(List<JournalRow> rows) {
+        List<String> inserted = new ArrayList<>(rows.size());
+        for (JournalRow row : rows) {
+            try {
+                inserted.addAll(insert(List.of(row)));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Rejected transaction not recorded, key claimed | key={}", row.idempotencyKey());
+            }
+        }
+        return inserted;
+    }
+
+    private record PendingFailure(JournalRow row, long queuedAt) {
+    }
+}
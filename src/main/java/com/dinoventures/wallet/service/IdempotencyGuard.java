@@ -0,0 +1,262 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.repository.WalletTransactionRepository;
+import com.dinoventures.wallet.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-process front for the idempotency-key lookup.
+ *
+ * 1. Recent keys (committed by this instance within the TTL) answer from memory.
+ * 2. A Bloom filter of every known key answers "definitely new" without a query.
+ * 3. Only filter positives that are not cached go to the database.
+ *
+ * The filter is warmed from wallet_idempotency_keys at startup and rebuilt when it
+ * outgrows its expected size. Keys written by other instances are not in it, so
+ * the unique constraint uk_wallet_tx_idempotency stays the final authority.
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    private final WalletTransactionRepository walletTransactionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Counter cacheHits;
+    private final Counter filterNegatives;
+    private final Counter databaseHits;
+    private final Counter falsePositives;
+
+    @Value("${wallet.idempotency.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.idempotency.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${wallet.idempotency.cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${wallet.idempotency.filter.expected-keys:1000000}")
+    private long expectedKeys;
+
+    @Value("${wallet.idempotency.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final Map<String, CachedKey> recentKeys = new ConcurrentHashMap<>();
+    // Insertion order == expiry order, since every entry gets the same TTL
+    private final Queue<CachedKey> expiryOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong cacheSize = new AtomicLong();
+
+    private volatile BloomFilter filter;
+    // Until the filter holds every committed key, a negative from it proves nothing
+    private volatile boolean filterReady;
+
+    public IdempotencyGuard(WalletTransactionRepository walletTransactionRepository,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry) {
+        this.walletTransactionRepository = walletTransactionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.cacheHits = lookupCounter(meterRegistry, "cache_hit");
+        this.filterNegatives = lookupCounter(meterRegistry, "filter_negative");
+        this.databaseHits = lookupCounter(meterRegistry, "db_hit");
+        this.falsePositives = lookupCounter(meterRegistry, "false_positive");
+        Gauge.builder("wallet.idempotency.cache.size", cacheSize, AtomicLong::get)
+                .description("Recently committed idempotency keys held in memory")
+                .register(meterRegistry);
+        Gauge.builder("wallet.idempotency.filter.keys", this,
+                        guard -> guard.filter == null ? 0 : guard.filter.getInsertions())
+                .description("Keys inserted into the idempotency Bloom filter")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("wallet.idempotency.lookups")
+                .description("Idempotency checks by how they were answered")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    // Status of an earlier request with this key (SUCCESS / FAILED), or null if the key is new
+    public String findStatus(String key) {
+        if (!enabled) {
+            return queryStatus(key);
+        }
+
+        CachedKey cached = recentKeys.get(key);
+        if (cached != null && !cached.isExpired(System.nanoTime())) {
+            cacheHits.increment();
+            return cached.status;
+        }
+
+        BloomFilter current = filter;
+        if (filterReady && current != null && !current.mightContain(key)) {
+            filterNegatives.increment();
+            return null;
+        }
+
+        String status = queryStatus(key);
+        if (status != null) {
+            databaseHits.increment();
+            remember(key, status);
+        } else if (filterReady) {
+            falsePositives.increment();
+        }
+        return status;
+    }
+
+    // Remembers the key once the surrounding transaction commits; a rollback leaves no trace
+    public void recordAfterCommit(String key, String status) {
+        if (!enabled || key == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(key, status);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(key, status);
+            }
+        });
+    }
+
+    // Bulk variant: one synchronization for the whole batch of keys
+    public void recordAllAfterCommit(Collection<String> keys, String status) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            keys.forEach(key -> remember(key, status));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(key -> remember(key, status));
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled && !filterReady) {
+            rebuildFilter(expectedKeys);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${wallet.idempotency.cache.sweep-interval-ms:10000}",
+            fixedDelayString = "${wallet.idempotency.cache.sweep-interval-ms:10000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        evictExpired(System.nanoTime());
+
+        BloomFilter current = filter;
+        if (!filterReady) {
+            rebuildFilter(expectedKeys);
+        } else if (current != null && current.isSaturated()) {
+            log.info("Idempotency filter saturated | keys={} | expected={} | rebuilding",
+                    current.getInsertions(), current.getExpectedInsertions());
+            rebuildFilter(current.getExpectedInsertions() * 2);
+        }
+    }
+
+    private synchronized void rebuildFilter(long capacity) {
+        filterReady = false;
+        try {
+            long known = walletTransactionRepository.countIdempotencyKeys();
+            BloomFilter rebuilt = new BloomFilter(Math.max(capacity, known * 2), falsePositiveRate);
+            // On the primary: a lagging replica could miss keys committed just before the scan
+            ReadRouting.onPrimary(() -> readOnlyTransaction.execute(status -> {
+                try (Stream<String> keys = walletTransactionRepository.streamAllIdempotencyKeys()) {
+                    keys.forEach(rebuilt::put);
+                }
+                return null;
+            }));
+            filter = rebuilt;
+            // Keys committed while the scan ran are at least in the recent cache
+            recentKeys.keySet().forEach(rebuilt::put);
+            filterReady = true;
+            log.info("Idempotency filter ready | keys={} | capacity={}",
+                    rebuilt.getInsertions(), rebuilt.getExpectedInsertions());
+        } catch (Exception e) {
+            // Stay on the database lookup path; the next sweep retries
+            log.error("Idempotency filter warm-up failed, every check will query the database: {}", e.getMessage());
+        }
+    }
+
+    private String queryStatus(String key) {
+        return walletTransactionRepository.findStatusByIdempotencyKey(key).orElse(null);
+    }
+
+    private void remember(String key, String status) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+
+        long now = System.nanoTime();
+        CachedKey entry = new CachedKey(key, status, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        if (recentKeys.put(key, entry) == null) {
+            cacheSize.incrementAndGet();
+        }
+        expiryOrder.add(entry);
+
+        if (cacheSize.get() > maxEntries) {
+            evictExpired(now);
+        }
+        // Still over the bound: drop the oldest entries; they remain covered by the filter
+        while (cacheSize.get() > maxEntries) {
+            CachedKey oldest = expiryOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            removeIfCurrent(oldest);
+        }
+    }
+
+    private void evictExpired(long now) {
+        CachedKey head;
+        while ((head = expiryOrder.peek()) != null && head.isExpired(now)) {
+            if (expiryOrder.remove(head)) {
+                removeIfCurrent(head);
+            }
+        }
+    }
+
+    private void removeIfCurrent(CachedKey entry) {
+        if (recentKeys.remove(entry.key, entry)) {
+            cacheSize.decrementAndGet();
+        }
+    }
+
+    private record CachedKey(String key, String status, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
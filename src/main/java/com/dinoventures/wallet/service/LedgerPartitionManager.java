@@ -0,0 +1,307 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.repository.ReconciliationRepository;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitions of wallet_transactions and ledger_entries by created_at.
+ *
+ * Hibernate creates both tables as plain heaps. With wallet.partitions.enabled, the first
+ * start converts them in one transaction, under an advisory lock so that instances
+ * starting together convert once (the table kinds are read after the lock): each heap
+ * is renamed to <table>_legacy, a partitioned table with the same columns and foreign
+ * keys takes its name, and the old rows are attached as the partition for everything
+ * before next month (an empty heap is simply dropped). The
+ * attach scans the old table once to validate the bound. From then on a scheduled job
+ * keeps months-ahead partitions ready and detaches partitions past the retention into
+ * the archive schema, where they can be dumped and dropped without touching live tables.
+ *
+ * A unique index of a partitioned table must contain the partition key, so the conversion
+ * moves idempotency keys to wallet_idempotency_keys (primary key uk_wallet_tx_idempotency),
+ * claimed by a row trigger on wallet_transactions. Keys outlive archived partitions: a
+ * request retried after its transaction was archived is still rejected. A heap keeps its
+ * own unique index uk_wallet_tx_idempotency and wallet_idempotency_keys is a view over it,
+ * so the key queries work either way and unpartitioned inserts pay for no trigger.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class LedgerPartitionManager {
+
+    public static final String TRANSACTIONS = "wallet_transactions";
+    public static final String LEDGER = "ledger_entries";
+    private static final List<String> TABLES = List.of(TRANSACTIONS, LEDGER);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final String IDEMPOTENCY_KEYS = "wallet_idempotency_keys";
+    private static final String IDEMPOTENCY_CONSTRAINT = "uk_wallet_tx_idempotency";
+    private static final String IDEMPOTENCY_TRIGGER = "trg_wallet_tx_idempotency";
+    // pg_advisory_xact_lock key: instances starting together convert the tables one after the other
+    private static final long PARTITION_LOCK = 0x77616c6c65747074L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReconciliationRepository reconciliationRepository;
+
+    // Off: the tables stay heaps and the scheduled maintenance does nothing
+    @Value("${wallet.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${wallet.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps every partition attached
+    @Value("${wallet.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${wallet.partitions.archive-schema:archive}")
+    private String archiveSchema;
+
+    @Value("${wallet.reconciliation.enabled:true}")
+    private boolean reconciliationEnabled;
+
+    private record Partition(String name, LocalDateTime upperBound) {}
+
+    @PostConstruct
+    void prepare() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(?)", Integer.class, PARTITION_LOCK);
+            if (enabled) {
+                convertHeapTables();
+            } else if ("r".equals(relkind(TRANSACTIONS))) {
+                viewHeapIdempotencyKeys();
+            }
+        });
+        if (enabled) {
+            ensureFuturePartitions();
+        }
+    }
+
+    @Scheduled(cron = "${wallet.partitions.maintenance-cron:0 30 2 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        ensureFuturePartitions();
+        archiveExpiredPartitions();
+    }
+
+    // Runs under PARTITION_LOCK: an instance that waited for it sees the tables already converted
+    private void convertHeapTables() {
+        List<String> heaps = TABLES.stream().filter(table -> "r".equals(relkind(table))).toList();
+        if (heaps.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("LOCK TABLE " + String.join(", ", heaps) + " IN ACCESS EXCLUSIVE MODE");
+        // The key view follows the heap through the rename; the key table replaces it below
+        if (heaps.contains(TRANSACTIONS) && "v".equals(relkind(IDEMPOTENCY_KEYS))) {
+            jdbcTemplate.execute("DROP VIEW " + IDEMPOTENCY_KEYS);
+        }
+
+        // Partitions are archived independently, so ledger rows cannot reference transactions by key
+        List<String> ledgerForeignKeys = jdbcTemplate.queryForList("""
+                SELECT conname FROM pg_constraint
+                WHERE conrelid = CAST(? AS regclass) AND confrelid = CAST(? AS regclass) AND contype = 'f'
+                """, String.class, LEDGER, TRANSACTIONS);
+        ledgerForeignKeys.forEach(name ->
+                jdbcTemplate.execute("ALTER TABLE " + LEDGER + " DROP CONSTRAINT \"" + name + "\""));
+
+        LocalDateTime boundary = monthStart(LocalDate.now()).plusMonths(1);
+        for (String table : heaps) {
+            convert(table, boundary);
+        }
+        if (heaps.contains(TRANSACTIONS)) {
+            installIdempotencyKeys();
+        }
+    }
+
+    private void convert(String table, LocalDateTime boundary) {
+        String legacy = table + "_legacy";
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+
+        // Index names are schema-wide: free them for the partitioned table's own indexes
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = CAST(? AS regclass)",
+                String.class, legacy);
+        for (String index : indexes) {
+            String renamed = index.substring(0, Math.min(index.length(), 55)) + "_legacy";
+            jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + renamed);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacy
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS, PRIMARY KEY (id, created_at))"
+                + " PARTITION BY RANGE (created_at)");
+        // Foreign keys (wallets, users, asset types) keep their names; the attach reuses the old ones
+        List<Map<String, Object>> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT conname, pg_get_constraintdef(oid) AS def FROM pg_constraint "
+                        + "WHERE conrelid = CAST(? AS regclass) AND contype = 'f'", legacy);
+        for (Map<String, Object> fk : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT \"" + fk.get("conname") + "\" " + fk.get("def"));
+        }
+
+        Boolean hasRows = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + legacy + ")", Boolean.class);
+        if (Boolean.TRUE.equals(hasRows)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + legacy
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + Timestamp.valueOf(boundary) + "')");
+            log.info("Partitioned {} | existing rows kept in {} (before {})", table, legacy, boundary);
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + legacy);
+            log.info("Partitioned {}", table);
+        }
+    }
+
+    // Unpartitioned: the heap's unique index enforces the keys; a fresh schema has none,
+    // since the entity no longer declares it
+    private void viewHeapIdempotencyKeys() {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + IDEMPOTENCY_CONSTRAINT
+                + " ON " + TRANSACTIONS + " (idempotency_key)");
+        jdbcTemplate.execute("CREATE OR REPLACE VIEW " + IDEMPOTENCY_KEYS + " AS"
+                + " SELECT idempotency_key, id AS transaction_id, created_at FROM " + TRANSACTIONS
+                + " WHERE idempotency_key IS NOT NULL");
+    }
+
+    private void installIdempotencyKeys() {
+        // Index names are schema-wide: a heap index still holding the key table's constraint
+        // name (one convert() did not rename) is moved out of the way first
+        String holder = jdbcTemplate.queryForList(
+                "SELECT indrelid::regclass::text FROM pg_index WHERE indexrelid = to_regclass(?)",
+                String.class, IDEMPOTENCY_CONSTRAINT).stream().findFirst().orElse(null);
+        if (holder != null && !IDEMPOTENCY_KEYS.equals(holder)) {
+            jdbcTemplate.execute("ALTER INDEX " + IDEMPOTENCY_CONSTRAINT + " RENAME TO " + IDEMPOTENCY_CONSTRAINT + "_legacy");
+        }
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS wallet_idempotency_keys (
+                    idempotency_key varchar(255) NOT NULL,
+                    transaction_id uuid NOT NULL,
+                    created_at timestamp(6) NOT NULL,
+                    CONSTRAINT uk_wallet_tx_idempotency PRIMARY KEY (idempotency_key)
+                )
+                """);
+        int copied = jdbcTemplate.update("""
+                INSERT INTO wallet_idempotency_keys (idempotency_key, transaction_id, created_at)
+                SELECT idempotency_key, id, created_at FROM wallet_transactions
+                WHERE idempotency_key IS NOT NULL
+                ON CONFLICT DO NOTHING
+                """);
+        // A duplicate key fails the insert with a unique violation on uk_wallet_tx_idempotency,
+        // exactly as the old per-table constraint did
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION wallet_tx_claim_idempotency_key() RETURNS trigger AS $$
+                BEGIN
+                    IF NEW.idempotency_key IS NOT NULL THEN
+                        INSERT INTO wallet_idempotency_keys (idempotency_key, transaction_id, created_at)
+                        VALUES (NEW.idempotency_key, NEW.id, NEW.created_at);
+                    END IF;
+                    RETURN NULL;
+                END
+                $$ LANGUAGE plpgsql
+                """);
+        jdbcTemplate.execute("CREATE TRIGGER " + IDEMPOTENCY_TRIGGER + " AFTER INSERT ON " + TRANSACTIONS
+                + " FOR EACH ROW EXECUTE FUNCTION wallet_tx_claim_idempotency_key()");
+        log.info("Idempotency keys moved to wallet_idempotency_keys | keys={}", copied);
+    }
+
+    // Creates the partitions from the newest existing bound (or this month) to months-ahead
+    public void ensureFuturePartitions() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate lastMonth = currentMonth.plusMonths(monthsAhead);
+        for (String table : TABLES) {
+            if (!"p".equals(relkind(table))) {
+                log.warn("{} is not partitioned, no partitions created", table);
+                continue;
+            }
+            LocalDate month = partitions(table).stream()
+                    .map(partition -> partition.upperBound().toLocalDate())
+                    .filter(bound -> bound.isAfter(currentMonth))
+                    .max(LocalDate::compareTo)
+                    .orElse(currentMonth);
+            for (; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + SUFFIX.format(month)
+                        + " PARTITION OF " + table
+                        + " FOR VALUES FROM ('" + Timestamp.valueOf(monthStart(month))
+                        + "') TO ('" + Timestamp.valueOf(monthStart(month.plusMonths(1))) + "')");
+                log.info("Created partition {}{}", table, SUFFIX.format(month));
+            }
+        }
+    }
+
+    // Detaches partitions wholly older than the retention (and, with reconciliation on,
+    // already covered by its checkpoints) and moves them to the archive schema
+    public void archiveExpiredPartitions() {
+        if (retentionMonths <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = monthStart(LocalDate.now()).minusMonths(retentionMonths);
+        if (reconciliationEnabled) {
+            LocalDateTime reconciled = reconciliationRepository.findLastCheckedThrough();
+            if (reconciled == null) {
+                log.warn("Partition archiving skipped: ledger not reconciled yet");
+                return;
+            }
+            if (reconciled.isBefore(cutoff)) {
+                cutoff = reconciled;
+            }
+        }
+
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+        for (String table : TABLES) {
+            for (Partition partition : partitions(table)) {
+                if (partition.upperBound().isAfter(cutoff)) {
+                    continue;
+                }
+                try {
+                    // CONCURRENTLY runs outside a transaction: JdbcTemplate executes it in autocommit
+                    jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition.name() + " CONCURRENTLY");
+                    jdbcTemplate.execute("ALTER TABLE " + partition.name() + " SET SCHEMA " + archiveSchema);
+                    log.info("Archived partition {} to {} | before={}", partition.name(), archiveSchema, partition.upperBound());
+                } catch (Exception e) {
+                    // An interrupted concurrent detach is completed with DETACH PARTITION ... FINALIZE
+                    log.error("Archiving partition {} failed: {}", partition.name(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String relkind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private List<Partition> partitions(String table) {
+        return jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = CAST(? AS regclass)
+                """, (rs, rowNum) -> new Partition(rs.getString(1), upperBound(rs.getString(2))), table);
+    }
+
+    private static LocalDateTime upperBound(String bound) {
+        Matcher matcher = UPPER_BOUND.matcher(NullSafeUtils.safeToString(bound));
+        return matcher.find() ? Timestamp.valueOf(matcher.group(1)).toLocalDateTime() : LocalDateTime.MAX;
+    }
+
+    private static LocalDateTime monthStart(LocalDate date) {
+        return date.withDayOfMonth(1).atStartOfDay();
+    }
+}
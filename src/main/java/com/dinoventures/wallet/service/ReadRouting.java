@@ -0,0 +1,77 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a read-only transaction may use the read replica (see ReadReplicaConfig).
+ *
+ * Read-only transactions go to the replica unless the thread is pinned to the primary,
+ * either explicitly (onPrimary) or because the user wrote within the read-your-writes
+ * window, so a balance read right after a top-up never shows the replica's older value.
+ * Writes are remembered per instance: without sticky routing, a read served by another
+ * instance can still observe replica lag.
+ */
+@Component
+public class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    // user -> end of the read-your-writes window (System.nanoTime)
+    private final Map<UUID, Long> recentWriters = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final long windowNanos;
+
+    public ReadRouting(@Value("${wallet.datasource.replica.url:}") String replicaUrl,
+                       @Value("${wallet.datasource.read-your-writes-ms:2000}") long windowMillis) {
+        this.enabled = !NullSafeUtils.isNullOrEmpty(replicaUrl) && windowMillis > 0;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (isPinnedToPrimary()) {
+            return work.get();
+        }
+        PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    // Reads of a user who wrote within the window run on the primary
+    public <T> T forUser(String userId, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        UUID id = NullSafeUtils.safeParseUUID(userId);
+        Long until = id == null ? null : recentWriters.get(id);
+        return until != null && until - System.nanoTime() > 0 ? onPrimary(work) : work.get();
+    }
+
+    public void recordWrite(UUID userId) {
+        if (enabled && userId != null) {
+            recentWriters.put(userId, System.nanoTime() + windowNanos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.datasource.read-your-writes-sweep-ms:10000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        recentWriters.values().removeIf(until -> until - now <= 0);
+    }
+}
@@ -0,0 +1,220 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.repository.ReconciliationRepository;
+import com.dinoventures.wallet.repository.ReconciliationRepository.Checkpoint;
+import com.dinoventures.wallet.repository.ReconciliationRepository.WalletDelta;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Incremental ledger-vs-balance reconciliation.
+ *
+ * Every wallet keeps a checkpoint: the net of its ledger entries created before
+ * checkedThrough. A run only sums the entries created since, so its cost follows
+ * the ledger growth since the last run, not the table size. Wallets are split
+ * into id ranges that are checked in parallel on a fork-join pool.
+ *
+ * Every wallet must satisfy balance == opening + CREDITs - DEBITs. User wallets
+ * open at zero. System wallet shards are seeded outside the ledger, so their
+ * opening balance is taken on first sight; moves between shards are booked as
+ * REBALANCE transactions, so each shard is checked on its own.
+ *
+ * Checkpoints only advance to now - settle-lag: an entry whose transaction
+ * commits after the run but carries an earlier created_at would otherwise fall
+ * behind the checkpoint and never be counted.
+ */
+@Slf4j
+@Service
+public class ReconciliationService {
+
+    private static final int MAX_REPORTED_MISMATCHES = 1000;
+
+    private final ReconciliationRepository reconciliationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${wallet.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.reconciliation.range-size:5000}")
+    private int rangeSize;
+
+    @Value("${wallet.reconciliation.settle-lag-seconds:300}")
+    private long settleLagSeconds;
+
+    private volatile ReconciliationReport lastReport;
+
+    public record Mismatch(
+            UUID walletId,
+            UUID assetTypeId,
+            String walletType,
+            BigDecimal balance,
+            BigDecimal expectedBalance,
+            BigDecimal difference
+    ) {}
+
+    public record ReconciliationReport(
+            LocalDateTime startedAt,
+            LocalDateTime checkedThrough,
+            long durationMillis,
+            long walletsChecked,
+            long entriesScanned,
+            int ranges,
+            int mismatchCount,
+            List<Mismatch> mismatches  // first MAX_REPORTED_MISMATCHES
+    ) {}
+
+    public ReconciliationService(ReconciliationRepository reconciliationRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${wallet.reconciliation.parallelism:4}") int parallelism) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Each worker holds one connection while it reads a range: keep this below the pool size
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        Gauge.builder("wallet.reconciliation.mismatches", this,
+                        service -> service.lastReport == null ? 0 : service.lastReport.mismatchCount())
+                .description("Wallets whose balance disagreed with the ledger in the last run")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    @Scheduled(cron = "${wallet.reconciliation.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    // Returns null if a run is already in progress
+    public ReconciliationReport run() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Reconciliation already running, skipped");
+            return null;
+        }
+        try {
+            ReconciliationReport report = reconcile();
+            lastReport = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport reconcile() {
+        LocalDateTime startedAt = NullSafeUtils.safeNow();
+        long started = System.nanoTime();
+        LocalDateTime horizon = startedAt.minusSeconds(settleLagSeconds);
+
+        // Range boundaries come from short index scans; ranges run while the next ones are found
+        List<Future<RangeResult>> futures = new ArrayList<>();
+        UUID after = ReconciliationRepository.MIN_ID;
+        while (after != null) {
+            UUID end = reconciliationRepository.findRangeEnd(after, rangeSize);
+            UUID through = end != null ? end : ReconciliationRepository.MAX_ID;
+            UUID from = after;
+            Callable<RangeResult> task = () -> checkRange(from, through, horizon, startedAt);
+            futures.add(pool.submit(task));
+            after = end;
+        }
+
+        long wallets = 0;
+        long entries = 0;
+        List<Mismatch> mismatches = new ArrayList<>();
+        for (Future<RangeResult> future : futures) {
+            RangeResult result = await(future);
+            wallets += result.wallets();
+            entries += result.entries();
+            mismatches.addAll(result.mismatches());
+        }
+
+        long durationMillis = (System.nanoTime() - started) / 1_000_000;
+        ReconciliationReport report = new ReconciliationReport(startedAt, horizon, durationMillis,
+                wallets, entries, futures.size(), mismatches.size(),
+                List.copyOf(mismatches.subList(0, Math.min(mismatches.size(), MAX_REPORTED_MISMATCHES))));
+
+        if (mismatches.isEmpty()) {
+            log.info("Reconciliation clean | wallets={} | entries={} | ranges={} | durationMs={}",
+                    wallets, entries, futures.size(), durationMillis);
+        } else {
+            log.error("Reconciliation found {} mismatches | wallets={} | entries={} | durationMs={}",
+                    mismatches.size(), wallets, entries, durationMillis);
+        }
+        return report;
+    }
+
+    private RangeResult checkRange(UUID after, UUID through, LocalDateTime horizon, LocalDateTime now) {
+        List<WalletDelta> deltas = reconciliationRepository.findDeltas(after, through, horizon);
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        List<Checkpoint> checkpoints = new ArrayList<>(deltas.size());
+        long entries = 0;
+        for (WalletDelta delta : deltas) {
+            entries += delta.entries();
+            BigDecimal newNet = delta.settledNet().add(delta.recentNet());
+            BigDecimal ledgerTotal = delta.checkpointNet().add(newNet);
+
+            // First sight of a system wallet: whatever the ledger does not explain is its opening balance
+            BigDecimal opening = delta.checkpointed() || !delta.systemWallet()
+                    ? delta.openingBalance()
+                    : delta.balance().subtract(ledgerTotal);
+            BigDecimal expected = opening.add(ledgerTotal);
+
+            if (delta.balance().compareTo(expected) != 0) {
+                mismatches.add(new Mismatch(delta.walletId(), delta.assetTypeId(), delta.walletType(),
+                        delta.balance(), expected, delta.balance().subtract(expected)));
+            }
+
+            if (!delta.checkpointed() || delta.entries() > 0) {
+                checkpoints.add(new Checkpoint(delta.walletId(), opening,
+                        delta.checkpointNet().add(delta.settledNet())));
+            }
+        }
+
+        if (!checkpoints.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    reconciliationRepository.saveCheckpoints(checkpoints, horizon, now));
+        }
+        return new RangeResult(deltas.size(), entries, mismatches);
+    }
+
+    private static RangeResult await(Future<RangeResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reconciliation range failed", e.getCause());
+        }
+    }
+
+    private record RangeResult(long wallets, long entries, List<Mismatch> mismatches) {}
+}
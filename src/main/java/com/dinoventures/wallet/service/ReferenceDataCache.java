@@ -0,0 +1,177 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.repository.AssetTypeRepository;
+import com.dinoventures.wallet.repository.UserRepository;
+import com.dinoventures.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache for data the transfer path reads on every request but
+ * almost never changes: asset types by code, users by id, and the shard IDs
+ * of each system wallet.
+ *
+ * Only hits are cached (a new asset or user is picked up on first use), each
+ * map is size-bounded, and entries are dropped through the invalidate* methods.
+ * System wallets are cached as identity-only copies (no balance): balances are
+ * read from the rows the transfer statement mutates, never from here.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    static final List<String> SYSTEM_WALLET_TYPES = List.of("TREASURY", "BONUS", "REVENUE");
+
+    private final AssetTypeRepository assetTypeRepository;
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+
+    @Value("${wallet.reference-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.reference-cache.max-assets:1000}")
+    private int maxAssets;
+
+    @Value("${wallet.reference-cache.max-users:100000}")
+    private int maxUsers;
+
+    private final Map<String, AssetType> assetsByCode = new ConcurrentHashMap<>();
+    private final Map<UUID, User> usersById = new ConcurrentHashMap<>();
+    private final Map<SystemWalletKey, List<Wallet>> systemWallets = new ConcurrentHashMap<>();
+
+    public Optional<AssetType> findAsset(String code) {
+        if (!enabled) {
+            return assetTypeRepository.findByCode(code);
+        }
+        AssetType cached = assetsByCode.get(code);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<AssetType> loaded = assetTypeRepository.findByCode(code);
+        loaded.ifPresent(asset -> putBounded(assetsByCode, code, asset, maxAssets));
+        return loaded;
+    }
+
+    public Optional<User> findUser(UUID userId) {
+        if (!enabled) {
+            return userRepository.findById(userId);
+        }
+        User cached = usersById.get(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> loaded = userRepository.findById(userId);
+        loaded.ifPresent(user -> putBounded(usersById, userId, user, maxUsers));
+        return loaded;
+    }
+
+    // Shards of a logical system wallet, shard 0 first; empty if the wallet does not exist
+    public List<Wallet> findSystemWallets(AssetType asset, String walletType) {
+        if (!enabled) {
+            return loadSystemWallets(asset, walletType);
+        }
+        SystemWalletKey key = new SystemWalletKey(asset.getId(), walletType);
+        List<Wallet> cached = systemWallets.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<Wallet> loaded = loadSystemWallets(asset, walletType);
+        if (!loaded.isEmpty()) {
+            // asset types x wallet types: bounded by the asset bound
+            putBounded(systemWallets, key, loaded, maxAssets * SYSTEM_WALLET_TYPES.size());
+        }
+        return loaded;
+    }
+
+    public void invalidateAsset(String code) {
+        AssetType removed = assetsByCode.remove(code);
+        if (removed != null) {
+            systemWallets.keySet().removeIf(key -> key.assetTypeId().equals(removed.getId()));
+        }
+    }
+
+    public void invalidateUser(UUID userId) {
+        usersById.remove(userId);
+    }
+
+    public void invalidateSystemWallets(AssetType asset, String walletType) {
+        if (asset != null) {
+            systemWallets.remove(new SystemWalletKey(asset.getId(), walletType));
+        }
+    }
+
+    public void invalidateAll() {
+        assetsByCode.clear();
+        usersById.clear();
+        systemWallets.clear();
+    }
+
+    // Called by WalletDataInitializer once assets and system wallets exist
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        invalidateAll();
+        for (AssetType asset : assetTypeRepository.findAll()) {
+            putBounded(assetsByCode, asset.getCode(), asset, maxAssets);
+            for (String walletType : SYSTEM_WALLET_TYPES) {
+                findSystemWallets(asset, walletType);
+            }
+        }
+        userRepository.findAll(PageRequest.of(0, Math.max(1, maxUsers)))
+                .forEach(user -> putBounded(usersById, user.getId(), user, maxUsers));
+
+        log.info("Reference cache warmed | assets={} | systemWallets={} | users={}",
+                assetsByCode.size(), systemWallets.size(), usersById.size());
+    }
+
+    private List<Wallet> loadSystemWallets(AssetType asset, String walletType) {
+        return walletRepository
+                .findAllByOwnerUserIsNullAndAssetTypeAndWalletTypeOrderByShardIndexAsc(asset, walletType)
+                .stream()
+                .map(wallet -> identityOnly(wallet, asset))
+                .toList();
+    }
+
+    // The asset is the caller's: the wallet's own association is a lazy proxy of a closed session
+    private static Wallet identityOnly(Wallet wallet, AssetType asset) {
+        return Wallet.builder()
+                .id(wallet.getId())
+                .assetType(asset)
+                .walletType(wallet.getWalletType())
+                .shardIndex(wallet.getShardIndex())
+                .build();
+    }
+
+    // Evicts an arbitrary entry when full; these maps are sized to hold the whole working set
+    private static <K, V> void putBounded(Map<K, V> map, K key, V value, int maxSize) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (map.size() >= maxSize && !map.containsKey(key)) {
+            Iterator<K> keys = map.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        map.put(key, value);
+    }
+
+    private record SystemWalletKey(UUID assetTypeId, String walletType) {
+    }
+}
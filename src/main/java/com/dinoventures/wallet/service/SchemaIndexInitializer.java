@@ -0,0 +1,84 @@
+package com.dinoventures.wallet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Indexes that ddl-auto cannot express (INCLUDE columns), created at startup.
+ *
+ * CONCURRENTLY keeps writes flowing while a large table is indexed; it runs
+ * outside a transaction, so JdbcTemplate executes each statement in autocommit.
+ * IF NOT EXISTS makes every restart a no-op once the indexes are there.
+ *
+ * Partitioned tables cannot be indexed concurrently. Their index is created on the
+ * parent, which adopts a matching index already on a partition (the legacy heap
+ * keeps its old ones) and builds it on the others, all small at that point; later
+ * partitions get it when LedgerPartitionManager creates them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaIndexInitializer {
+
+    // History pages: equality on user (and asset), then a backward range scan on (created_at, id).
+    // The INCLUDE columns let a page be answered from the index alone.
+    private static final List<String> INDEXES = List.of(
+            """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_wallet_tx_user_history
+            ON wallet_transactions (user_id, created_at, id)
+            INCLUDE (asset_type_id, transaction_type, amount, status)
+            """,
+            """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_wallet_tx_user_asset_history
+            ON wallet_transactions (user_id, asset_type_id, created_at, id)
+            INCLUDE (transaction_type, amount, status)
+            """,
+            // Time-range exports: rows stream in (created_at, id) order straight off the index
+            """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_wallet_tx_created_at
+            ON wallet_transactions (created_at, id)
+            """,
+            """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ledger_created_at
+            ON ledger_entries (created_at, id)
+            """,
+            // Reconciliation: per wallet, only the entries since its checkpoint
+            """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ledger_wallet_created_at
+            ON ledger_entries (wallet_id, created_at)
+            INCLUDE (entry_type, amount)
+            """
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${wallet.schema.create-indexes:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!enabled) {
+            return;
+        }
+        List<String> partitioned = jdbcTemplate.queryForList(
+                "SELECT relname::text FROM pg_class WHERE relkind = 'p'", String.class);
+        for (String index : INDEXES) {
+            boolean onPartitioned = partitioned.stream().anyMatch(table -> index.contains("ON " + table + " ("));
+            String ddl = onPartitioned ? index.replace(" CONCURRENTLY", "") : index;
+            try {
+                jdbcTemplate.execute(ddl);
+            } catch (Exception e) {
+                // A failed concurrent build leaves an INVALID index behind; drop it by hand and restart
+                log.error("Index creation failed: {} | {}", ddl.strip().lines().findFirst().orElse(ddl), e.getMessage());
+            }
+        }
+        log.info("Schema indexes checked | count={}", INDEXES.size());
+    }
+}
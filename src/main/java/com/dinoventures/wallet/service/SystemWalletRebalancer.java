@@ -0,0 +1,193 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.engine.BalanceEngine;
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.repository.AssetTypeRepository;
+import com.dinoventures.wallet.repository.WalletRepository;
+import com.dinoventures.wallet.utils.Ids;
+import com.dinoventures.wallet.utils.NullSafeUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the shards of each funded system wallet (TREASURY, BONUS) topped up.
+ *
+ * A shard that drops below the low watermark is refilled towards the even
+ * share from the richest shards. Moves stay inside one logical wallet, so the
+ * per-asset totals are unaffected. Each move is booked as a REBALANCE transaction
+ * with a DEBIT on the donor and a CREDIT on the receiver, so every shard's balance
+ * still equals its ledger.
+ *
+ * The same moves fund a debit too large for any single shard (fundShard): the other
+ * shards top the preferred one up inside the debit's own transaction.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SystemWalletRebalancer {
+
+    // REVENUE only ever receives credits, so it never needs funding
+    private static final List<String> FUNDED_WALLET_TYPES = List.of("TREASURY", "BONUS");
+
+    private final AssetTypeRepository assetTypeRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceEngine balanceEngine;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Fraction of the even share below which a shard gets refilled
+    @Value("${wallet.system-wallets.rebalance-low-watermark:0.5}")
+    private BigDecimal lowWatermark;
+
+    // REBALANCE transactions have no user; ddl-auto does not relax the column of an existing table
+    @PostConstruct
+    void allowTransactionsWithoutUser() {
+        Boolean notNull = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (
+                    SELECT 1 FROM information_schema.columns
+                    WHERE table_schema = current_schema() AND table_name = 'wallet_transactions'
+                    AND column_name = 'user_id' AND is_nullable = 'NO'
+                )
+                """, Boolean.class);
+        if (Boolean.TRUE.equals(notNull)) {
+            jdbcTemplate.execute("ALTER TABLE wallet_transactions ALTER COLUMN user_id DROP NOT NULL");
+            log.info("wallet_transactions.user_id made nullable for REBALANCE transactions");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.system-wallets.rebalance-interval-ms:30000}")
+    public void rebalanceAll() {
+        for (AssetType asset : assetTypeRepository.findAll()) {
+            // The engine already falls back across shards in memory; moving funds under it only stales its balances
+            if (balanceEngine.handles(asset.getCode())) {
+                continue;
+            }
+            for (String walletType : FUNDED_WALLET_TYPES) {
+                try {
+                    rebalance(asset, walletType);
+                } catch (Exception e) {
+                    log.error("Shard rebalance failed | asset={} | type={} | error={}",
+                            asset.getCode(), walletType, e.getMessage());
+                }
+            }
+        }
+    }
+
+    public void rebalance(AssetType asset, String walletType) {
+        List<Wallet> shards = walletRepository
+                .findAllByOwnerUserIsNullAndAssetTypeAndWalletTypeOrderByShardIndexAsc(asset, walletType);
+        if (shards.size() < 2) {
+            return;
+        }
+
+        List<ShardBalance> balances = new ArrayList<>(shards.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Wallet shard : shards) {
+            BigDecimal balance = NullSafeUtils.safeGetBigDecimal(shard.getBalance());
+            balances.add(new ShardBalance(shard, balance));
+            total = total.add(balance);
+        }
+        if (total.signum() <= 0) {
+            return;
+        }
+
+        BigDecimal target = total.divide(BigDecimal.valueOf(shards.size()), total.scale(), RoundingMode.DOWN);
+        BigDecimal refillBelow = target.multiply(lowWatermark);
+
+        List<ShardBalance> donors = new ArrayList<>(balances);
+        donors.sort(Comparator.comparing(ShardBalance::getBalance).reversed());
+
+        for (ShardBalance poor : balances) {
+            if (poor.getBalance().compareTo(refillBelow) >= 0) {
+                continue;
+            }
+            BigDecimal needed = target.subtract(poor.getBalance());
+            for (ShardBalance donor : donors) {
+                if (needed.signum() <= 0) {
+                    break;
+                }
+                BigDecimal surplus = donor.getBalance().subtract(target);
+                if (donor == poor || surplus.signum() <= 0) {
+                    continue;
+                }
+                BigDecimal amount = surplus.min(needed);
+                if (moveBetweenShards(asset, donor.getWallet(), poor.getWallet(), amount)) {
+                    donor.setBalance(donor.getBalance().subtract(amount));
+                    poor.setBalance(poor.getBalance().add(amount));
+                    needed = needed.subtract(amount);
+                    log.info("Rebalanced {} {} | shard {} -> shard {} | amount={}",
+                            asset.getCode(), walletType, donor.getWallet().getShardIndex(),
+                            poor.getWallet().getShardIndex(), amount);
+                }
+            }
+        }
+    }
+
+    // Debit fallback when no single shard covers amount (TransactionProcessor, BulkBonusService).
+    // Locks every shard in id order, then moves what the others hold into the first one, the
+    // caller's preferred shard, until it covers amount; nothing moves when all of them together
+    // fall short. Joins the caller's transaction, so the moves commit or roll back with the debit.
+    // Returns the locked balances by shard id, after the moves.
+    public Map<UUID, BigDecimal> fundShard(AssetType asset, List<Wallet> shards, BigDecimal amount) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        walletRepository.lockBalances(shards.stream().map(Wallet::getId).toList())
+                .forEach(row -> balances.put(row.getId(), row.getBalance()));
+
+        Wallet receiver = shards.get(0);
+        BigDecimal total = balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal needed = amount.subtract(balances.getOrDefault(receiver.getId(), BigDecimal.ZERO));
+        if (total.compareTo(amount) < 0) {
+            return balances;
+        }
+        for (Wallet donor : shards.subList(1, shards.size())) {
+            if (needed.signum() <= 0) {
+                break;
+            }
+            BigDecimal part = balances.getOrDefault(donor.getId(), BigDecimal.ZERO).min(needed);
+            if (part.signum() > 0 && moveBetweenShards(asset, donor, receiver, part)) {
+                balances.merge(donor.getId(), part.negate(), BigDecimal::add);
+                balances.merge(receiver.getId(), part, BigDecimal::add);
+                needed = needed.subtract(part);
+                log.info("Funded {} {} shard {} from shard {} | amount={}", asset.getCode(),
+                        receiver.getWalletType(), receiver.getShardIndex(), donor.getShardIndex(), part);
+            }
+        }
+        return balances;
+    }
+
+    // Same conditional debit as a transfer; a donor drained meanwhile simply skips the move
+    private boolean moveBetweenShards(AssetType asset, Wallet from, Wallet to, BigDecimal amount) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                walletRepository.rebalance(from.getId(), to.getId(), amount, Ids.next(),
+                        asset.getId(), Ids.next(), Ids.next(), NullSafeUtils.safeNow()) > 0));
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    private static class ShardBalance {
+        private final Wallet wallet;
+        private BigDecimal balance;
+    }
+}
@@ -0,0 +1,87 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+import com.dinoventures.wallet.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads transfers across the shards of a logical system wallet.
+ *
+ * Each TREASURY / BONUS / REVENUE wallet is split into N rows so concurrent
+ * transfers of the same asset no longer queue on a single tuple lock.
+ * The preferred shard is picked by user hash (stable per user) or at random;
+ * the remaining shards follow in ring order so a debit can fall back to them,
+ * or fund the preferred one when none covers the amount alone.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SystemWalletRouter {
+
+    public static final String STRATEGY_USER_HASH = "USER_HASH";
+    public static final String STRATEGY_RANDOM = "RANDOM";
+
+    private final ReferenceDataCache referenceDataCache;
+
+    @Value("${wallet.system-wallets.shards:1}")
+    private int shardCount;
+
+    @Value("${wallet.system-wallets.shard-strategy:USER_HASH}")
+    private String shardStrategy;
+
+    public int getShardCount() {
+        return Math.max(1, shardCount);
+    }
+
+    public List<Wallet> findShardsOrThrow(AssetType assetType, String walletType) {
+        List<Wallet> shards = referenceDataCache.findSystemWallets(assetType, walletType);
+        if (shards.isEmpty()) {
+            throw new ResourceNotFoundException(
+                    "System wallet missing: asset=" + assetType.getCode() + " type=" + walletType);
+        }
+        return shards;
+    }
+
+    // Preferred shard first, then the rest in ring order.
+    // Shards come from the reference cache and carry identity only, not balances.
+    public List<Wallet> route(AssetType assetType, String walletType, User user) {
+        List<Wallet> shards = findShardsOrThrow(assetType, walletType);
+        if (shards.size() == 1) {
+            return shards;
+        }
+
+        int start = preferredShard(user, shards.size());
+        List<Wallet> ordered = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            ordered.add(shards.get((start + i) % shards.size()));
+        }
+        return ordered;
+    }
+
+    // "shard 0: 150000, shard 1: 20000" for rejection messages, shards in the given order
+    public static String describeShards(List<Wallet> shards, Map<UUID, BigDecimal> balances) {
+        return shards.stream()
+                .map(shard -> "shard " + shard.getShardIndex() + ": " + balances.get(shard.getId()))
+                .collect(Collectors.joining(", "));
+    }
+
+    private int preferredShard(User user, int size) {
+        if (STRATEGY_RANDOM.equalsIgnoreCase(shardStrategy) || user == null || user.getId() == null) {
+            return ThreadLocalRandom.current().nextInt(size);
+        }
+        return Math.floorMod(user.getId().hashCode(), size);
+    }
+}
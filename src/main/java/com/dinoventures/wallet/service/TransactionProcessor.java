@@ -2,17 +2,21 @@ package com.dinoventures.wallet.service;
 
 import com.dinoventures.wallet.entity.*;
 import com.dinoventures.wallet.exception.ConflictException;
-import com.dinoventures.wallet.repository.LedgerEntryRepository;
+import com.dinoventures.wallet.outbox.OutboxRelay;
+import com.dinoventures.wallet.repository.TransferOutcome;
 import com.dinoventures.wallet.repository.WalletRepository;
-import com.dinoventures.wallet.repository.WalletTransactionRepository;
+import com.dinoventures.wallet.utils.Ids;
 import com.dinoventures.wallet.utils.NullSafeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -20,12 +24,19 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class TransactionProcessor {
 
+    private static final String IDEMPOTENCY_CONSTRAINT = "uk_wallet_tx_idempotency";
+
     private final WalletRepository walletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
-    private final LedgerEntryRepository ledgerEntryRepository;
+    private final FailedTransactionRecorder failedTransactionRecorder;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BalanceCache balanceCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final TransferMetrics transferMetrics;
+    private final OutboxRelay outboxRelay;
+    private final SystemWalletRebalancer systemWalletRebalancer;
 
     @Transactional
-    public WalletTransaction processTransfer(
+    public TransferResult processTransfer(
             String transactionType,
             Wallet fromWallet,
             Wallet toWallet,
@@ -34,87 +45,117 @@ public class TransactionProcessor {
             User user,
             AssetType assetType,
             LocalDateTime now) {
+        return processTransfer(transactionType, List.of(fromWallet), toWallet, amount,
+                idempotencyKey, user, assetType, now);
+    }
+
+    // Debits the first source wallet that can cover the amount.
+    // Sharded system wallets pass their shards here, preferred shard first; when none covers
+    // the amount alone, the others fund the preferred shard and it is debited after all.
+    @Transactional
+    public TransferResult processTransfer(
+            String transactionType,
+            List<Wallet> sourceWallets,
+            Wallet toWallet,
+            BigDecimal amount,
+            String idempotencyKey,
+            User user,
+            AssetType assetType,
+            LocalDateTime now) {
 
         log.debug("Processing transfer | type={} | from={} | to={} | amount={}",
-                transactionType, fromWallet.getId(), toWallet.getId(), amount);
+                transactionType, sourceWallets.get(0).getId(), toWallet.getId(), amount);
 
-        // 🔒 CRITICAL FIX: Atomic debit with database-level validation
-        // This single UPDATE statement prevents ALL race conditions
-        int debitResult = walletRepository.atomicDebit(fromWallet.getId(), amount);
+        UUID transactionId = Ids.next();
+        long started = System.nanoTime();
+        String result = TransferMetrics.OUTCOME_ERROR;
 
-        if (debitResult == 0) {
-            // Balance check failed at database level - reload to get actual balance
-            Wallet reloadedWallet = walletRepository.findById(fromWallet.getId())
-                    .orElseThrow(() -> new ConflictException("Wallet disappeared: " + fromWallet.getId()));
+        try {
+            BigDecimal snapshotBalance = null;
+            for (Wallet fromWallet : sourceWallets) {
+                TransferOutcome outcome = attempt(fromWallet, toWallet, amount,
+                        transactionId, transactionType, user, assetType, idempotencyKey, now);
+                if (outcome == null) {
+                    result = TransferMetrics.OUTCOME_DUPLICATE;
+                    throw duplicate(transactionType, idempotencyKey);
+                }
+                if (outcome.getSourceBalance() != null) {
+                    result = TransferMetrics.OUTCOME_SUCCESS;
+                    return completed(outcome, transactionId, transactionType, user, assetType, amount, idempotencyKey, now);
+                }
+
+                // Balance check failed at database level - try the next shard, if any
+                transferMetrics.debitRejected(transactionType, assetType.getCode(), fromWallet.getWalletType());
+                snapshotBalance = outcome.getSourceSnapshotBalance();
+            }
+
+            String shortfall;
+            if (sourceWallets.size() > 1) {
+                // No shard covers the amount alone: the others fund the preferred one, if together they can
+                Map<UUID, BigDecimal> balances = systemWalletRebalancer.fundShard(assetType, sourceWallets, amount);
+                Wallet preferred = sourceWallets.get(0);
+                if (balances.getOrDefault(preferred.getId(), BigDecimal.ZERO).compareTo(amount) >= 0) {
+                    TransferOutcome outcome = attempt(preferred, toWallet, amount,
+                            transactionId, transactionType, user, assetType, idempotencyKey, now);
+                    if (outcome == null) {
+                        result = TransferMetrics.OUTCOME_DUPLICATE;
+                        throw duplicate(transactionType, idempotencyKey);
+                    }
+                    if (outcome.getSourceBalance() != null) {
+                        result = TransferMetrics.OUTCOME_SUCCESS;
+                        return completed(outcome, transactionId, transactionType, user, assetType, amount, idempotencyKey, now);
+                    }
+                }
+                shortfall = amount + " exceeds what the " + preferred.getWalletType() + " shards hold ("
+                        + SystemWalletRouter.describeShards(sourceWallets, balances) + ")";
+            } else {
+                shortfall = "balance " + snapshotBalance + " is below " + amount;
+            }
 
-            BigDecimal currentBalance = NullSafeUtils.safeGetBigDecimal(reloadedWallet.getBalance());
             String reason = getFailureReason(transactionType);
 
-            logFailedTransaction(transactionType, user, assetType, amount, reason, idempotencyKey);
+            long recordStarted = System.nanoTime();
+            // Only queued: this transaction is rolled back by the exception below
+            failedTransactionRecorder.record(transactionType, user, assetType, amount, reason, idempotencyKey);
+            transferMetrics.recordStage(transactionType, TransferMetrics.STAGE_FAILURE_RECORD, recordStarted);
+            result = TransferMetrics.OUTCOME_REJECTED;
 
-            throw new ConflictException(reason + ": " + currentBalance);
+            throw new ConflictException(reason + ": " + shortfall);
+        } finally {
+            transferMetrics.recordTransfer(transactionType, result, started);
         }
+    }
 
-        // 🔒 Lock target wallet and credit atomically
-        int creditResult = walletRepository.atomicCredit(toWallet.getId(), amount);
-
-        if (creditResult == 0) {
-            // Rollback the debit (very rare case - target wallet disappeared)
-            walletRepository.atomicCredit(fromWallet.getId(), amount);
+    // 🔒 Debit + credit + transaction + double-entry ledger (+ outbox event) in a single statement.
+    // The debit is still the atomic "balance >= amount" UPDATE, so no race window.
+    // Returns null for a duplicate key, otherwise the outcome (null sourceBalance = debit rejected).
+    private TransferOutcome attempt(Wallet fromWallet, Wallet toWallet, BigDecimal amount,
+                                    UUID transactionId, String transactionType, User user,
+                                    AssetType assetType, String idempotencyKey, LocalDateTime now) {
+        long statementStarted = System.nanoTime();
+        TransferOutcome outcome = transferOnce(fromWallet, toWallet, amount,
+                transactionId, transactionType, user, assetType, idempotencyKey, now);
+        transferMetrics.recordStage(transactionType, TransferMetrics.STAGE_TRANSFER_STATEMENT, statementStarted);
+
+        if (outcome == null) {
+            return null;
+        }
+        if (outcome.getTargetFound() == 0) {
+            forgetSystemWallet(toWallet);
             throw new ConflictException("Target wallet disappeared: " + toWallet.getId());
         }
-
-        // Reload both wallets to get updated balances
-        Wallet updatedFrom = walletRepository.findById(fromWallet.getId())
-                .orElseThrow(() -> new ConflictException("Source wallet reload failed"));
-        Wallet updatedTo = walletRepository.findById(toWallet.getId())
-                .orElseThrow(() -> new ConflictException("Target wallet reload failed"));
-
-        // Create transaction record
-        WalletTransaction tx = createSuccessTransaction(transactionType, user, assetType, amount, idempotencyKey, now);
-
-        // Create double-entry ledger
-        createDoubleEntryLedger(tx, updatedFrom, updatedTo, amount, now);
-
-        log.debug("Transfer completed | tx={} | from_balance={} | to_balance={}",
-                tx.getId(), updatedFrom.getBalance(), updatedTo.getBalance());
-
-        return tx;
-    }
-
-    private String getFailureReason(String transactionType) {
-        return switch(transactionType.toUpperCase()) {
-            case "SPEND" -> "INSUFFICIENT_FUNDS";
-            case "TOP_UP" -> "TREASURY_INSUFFICIENT";
-            case "BONUS" -> "BONUS_POOL_EXHAUSTED";
-            default -> "INSUFFICIENT_BALANCE";
-        };
-    }
-
-    private void logFailedTransaction(String type, User user, AssetType asset, BigDecimal amount,
-                                      String reason, String idempotencyKey) {
-        try {
-            WalletTransaction failedTx = WalletTransaction.builder()
-                    .transactionType(type)
-                    .user(user)
-                    .assetType(asset)
-                    .amount(amount)
-                    .status("FAILED")
-                    .failureReason(reason)
-                    .idempotencyKey(idempotencyKey)
-                    .createdAt(NullSafeUtils.safeNow())
-                    .updatedAt(NullSafeUtils.safeNow())
-                    .build();
-            walletTransactionRepository.save(failedTx);
-        } catch (Exception e) {
-            log.error("Failed to log failed transaction: {}", e.getMessage());
+        if (outcome.getSourceSnapshotBalance() == null) {
+            forgetSystemWallet(fromWallet);
+            throw new ConflictException("Wallet disappeared: " + fromWallet.getId());
         }
+        return outcome;
     }
 
-    private WalletTransaction createSuccessTransaction(String transactionType, User user,
-                                                       AssetType assetType, BigDecimal amount,
-                                                       String idempotencyKey, LocalDateTime now) {
+    private TransferResult completed(TransferOutcome outcome, UUID transactionId, String transactionType,
+                                     User user, AssetType assetType, BigDecimal amount,
+                                     String idempotencyKey, LocalDateTime now) {
         WalletTransaction tx = WalletTransaction.builder()
+                .id(transactionId)
                 .transactionType(transactionType)
                 .user(user)
                 .assetType(assetType)
@@ -124,24 +165,73 @@ public class TransactionProcessor {
                 .createdAt(now)
                 .updatedAt(now)
                 .build();
-        return walletTransactionRepository.save(tx);
+
+        log.debug("Transfer completed | tx={} | from_balance={} | to_balance={}",
+                tx.getId(), outcome.getSourceBalance(), outcome.getTargetBalance());
+
+        idempotencyGuard.recordAfterCommit(idempotencyKey, "SUCCESS");
+        balanceCache.evictAfterCommit(user.getId());
+        transferMetrics.timeCommit(transactionType);
+
+        return new TransferResult(tx, outcome.getSourceBalance(), outcome.getTargetBalance());
     }
 
-    private void createDoubleEntryLedger(WalletTransaction tx, Wallet fromWallet, Wallet toWallet,
-                                         BigDecimal amount, LocalDateTime now) {
-        createLedgerEntry(tx, fromWallet, "DEBIT", amount, now);
-        createLedgerEntry(tx, toWallet, "CREDIT", amount, now);
+    private ConflictException duplicate(String transactionType, String idempotencyKey) {
+        transferMetrics.idempotencyConflict(transactionType, TransferMetrics.CONFLICT_CONSTRAINT);
+        return new ConflictException("Request already processed: " + idempotencyKey);
     }
 
-    private void createLedgerEntry(WalletTransaction tx, Wallet wallet, String entryType,
-                                   BigDecimal amount, LocalDateTime now) {
-        LedgerEntry entry = LedgerEntry.builder()
-                .walletTransaction(tx)
-                .wallet(wallet)
-                .entryType(entryType)
-                .amount(amount)
-                .createdAt(now)
-                .build();
-        ledgerEntryRepository.save(entry);
+    // Player-to-player: unlike system-wallet transfers, two user wallets can be debited in both
+    // directions, and the transfer statement locks source before target. Both rows are locked
+    // in id order first, so the statement then runs on rows this transaction already holds.
+    @Transactional
+    public TransferResult processPeerTransfer(
+            String transactionType,
+            List<Wallet> sourceWallets,
+            Wallet toWallet,
+            BigDecimal amount,
+            String idempotencyKey,
+            User user,
+            AssetType assetType,
+            LocalDateTime now) {
+        long lockStarted = System.nanoTime();
+        walletRepository.lockInIdOrder(sourceWallets.get(0).getId(), toWallet.getId());
+        transferMetrics.recordStage(transactionType, TransferMetrics.STAGE_PAIR_LOCK, lockStarted);
+        return processTransfer(transactionType, sourceWallets, toWallet, amount, idempotencyKey, user, assetType, now);
+    }
+
+    // The idempotency check runs before the transfer without a lock, so two requests with the
+    // same key can both pass it; the unique constraint rejects the second one here (null is returned)
+    private TransferOutcome transferOnce(Wallet fromWallet, Wallet toWallet, BigDecimal amount,
+                                         UUID transactionId, String transactionType, User user,
+                                         AssetType assetType, String idempotencyKey, LocalDateTime now) {
+        try {
+            return walletRepository.transfer(
+                    fromWallet.getId(), toWallet.getId(), amount,
+                    transactionId, transactionType, user.getId(), assetType.getId(), idempotencyKey,
+                    Ids.next(), Ids.next(), now, outboxRelay.isEnabled());
+        } catch (DataIntegrityViolationException e) {
+            if (NullSafeUtils.safeToString(e.getMostSpecificCause().getMessage()).contains(IDEMPOTENCY_CONSTRAINT)) {
+                log.info("Duplicate idempotency key rejected by database | key={}", idempotencyKey);
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // A cached system wallet ID that no longer resolves is reloaded on the next request
+    private void forgetSystemWallet(Wallet wallet) {
+        if (wallet.getOwnerUser() == null) {
+            referenceDataCache.invalidateSystemWallets(wallet.getAssetType(), wallet.getWalletType());
+        }
+    }
+
+    private String getFailureReason(String transactionType) {
+        return switch(transactionType.toUpperCase()) {
+            case "SPEND", "TRANSFER" -> "INSUFFICIENT_FUNDS";
+            case "TOP_UP" -> "TREASURY_INSUFFICIENT";
+            case "BONUS" -> "BONUS_POOL_EXHAUSTED";
+            default -> "INSUFFICIENT_BALANCE";
+        };
     }
-}
\ No newline at end of file
+}
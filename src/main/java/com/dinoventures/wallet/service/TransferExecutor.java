@@ -0,0 +1,18 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.entity.AssetType;
+import com.dinoventures.wallet.entity.User;
+import com.dinoventures.wallet.entity.Wallet;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Books one transfer: TransactionProcessor (row locks) or BalanceEngine (in-memory writer)
+@FunctionalInterface
+interface TransferExecutor {
+
+    TransferResult transfer(String transactionType, List<Wallet> sourceWallets, Wallet toWallet,
+                            BigDecimal amount, String idempotencyKey, User user,
+                            AssetType assetType, LocalDateTime now);
+}
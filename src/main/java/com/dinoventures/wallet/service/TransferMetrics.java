@@ -0,0 +1,113 @@
+package com.dinoventures.wallet.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the top-up / bonus / spend / transfer path, all tagged by operation
+ * (TOP_UP, BONUS, SPEND, TRANSFER).
+ *
+ * wallet.transfer.stage   timer per stage: idempotency_check, wallet_lookup,
+ *                         pair_lock (TRANSFER only), transfer_statement (one per shard attempt),
+ *                         failure_record, commit
+ * wallet.transfer         timer for the whole of processTransfer, tagged by outcome
+ * wallet.transfer.debit.rejections   debits refused by "balance >= amount", per asset and wallet type
+ * wallet.transfer.idempotency.conflicts   duplicates caught by the guard or by the unique constraint
+ *
+ * Debit, credit, transaction insert, ledger inserts and the balance read-back are one
+ * statement (WalletRepository.transfer), so they share the transfer_statement stage.
+ * Timers publish histogram buckets, so percentiles can be aggregated across instances.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferMetrics {
+
+    public static final String STAGE_IDEMPOTENCY_CHECK = "idempotency_check";
+    public static final String STAGE_WALLET_LOOKUP = "wallet_lookup";
+    public static final String STAGE_PAIR_LOCK = "pair_lock";
+    public static final String STAGE_TRANSFER_STATEMENT = "transfer_statement";
+    public static final String STAGE_FAILURE_RECORD = "failure_record";
+    public static final String STAGE_COMMIT = "commit";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_DUPLICATE = "duplicate";
+    public static final String OUTCOME_ERROR = "error";
+
+    public static final String CONFLICT_GUARD = "guard";
+    public static final String CONFLICT_CONSTRAINT = "constraint";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T timeStage(String operation, String stage, Supplier<T> work) {
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordStage(operation, stage, started);
+        }
+    }
+
+    public void recordStage(String operation, String stage, long startedNanos) {
+        Timer.builder("wallet.transfer.stage")
+                .description("Time spent in each stage of a transfer")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTransfer(String operation, String outcome, long startedNanos) {
+        Timer.builder("wallet.transfer")
+                .description("processTransfer end to end, excluding the commit")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Times from the end of the transfer to the end of the commit of the surrounding transaction
+    public void timeCommit(String operation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        long started = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    recordStage(operation, STAGE_COMMIT, started);
+                }
+            }
+        });
+    }
+
+    public void debitRejected(String operation, String assetCode, String walletType) {
+        Counter.builder("wallet.transfer.debit.rejections")
+                .description("Debits refused because the source wallet could not cover the amount")
+                .tag("operation", operation)
+                .tag("asset", assetCode)
+                .tag("wallet_type", walletType)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void idempotencyConflict(String operation, String source) {
+        Counter.builder("wallet.transfer.idempotency.conflicts")
+                .description("Requests rejected because their idempotency key was already used")
+                .tag("operation", operation)
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,275 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.logging.StatementCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Optional group-commit mode for top-up / bonus / spend.
+ *
+ * Disabled (default): each request runs in its own transaction, exactly as before.
+ * Enabled: requests are queued and a committer thread packs them into one database
+ * transaction per batch (closed after max-batch-size requests or max-delay-micros),
+ * so N requests share a single commit / WAL flush. Every request runs behind its own
+ * JDBC savepoint: a request that fails is rolled back alone and its caller gets its own
+ * exception, the others still commit together. If the batch commit itself fails, the
+ * whole batch was rolled back and each request is replayed in its own transaction.
+ *
+ * A batch holds the row locks of all its requests until it commits, so it does not lock
+ * in one global order and can deadlock with other writers. A request that loses a
+ * deadlock or serialization conflict is rolled back to its savepoint and replayed in its
+ * own transaction after the batch, like a failed batch, instead of failing its caller.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferPipeline {
+
+    // deadlock_detected, serialization_failure: transient, the request is replayed alone
+    private static final Set<String> RETRYABLE_SQL_STATES = Set.of("40P01", "40001");
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final DataSource dataSource;
+
+    @Value("${wallet.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${wallet.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${wallet.group-commit.max-delay-micros:300}")
+    private long maxDelayMicros;
+
+    @Value("${wallet.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingTransfer<?>> queue;
+    private Thread committer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        committer = new Thread(this::runCommitter, "group-commit");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("Group commit enabled | maxBatchSize={} | maxDelayMicros={}", maxBatchSize, maxDelayMicros);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (committer != null) {
+            committer.interrupt();
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Runs one transfer request; blocks the caller until its batch has committed
+    public <T> T execute(Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+
+        PendingTransfer<T> pending = new PendingTransfer<>(work);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing transfer", e);
+        }
+
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void runCommitter() {
+        List<PendingTransfer<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer<?> next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Group commit loop error: {}", e.getMessage(), e);
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        // Fail whatever is still queued on shutdown
+        PendingTransfer<?> leftover;
+        while (queue != null && (leftover = queue.poll()) != null) {
+            leftover.result.completeExceptionally(new IllegalStateException("Transfer pipeline stopped"));
+        }
+    }
+
+    private void commitBatch(List<PendingTransfer<?>> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Connection connection = DataSourceUtils.getConnection(dataSource);
+                for (PendingTransfer<?> pending : batch) {
+                    runBehindSavepoint(connection, pending);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} transfers failed, replaying individually: {}", batch.size(), e.getMessage());
+            batch.forEach(PendingTransfer::runAlone);
+            return;
+        }
+        int replayed = 0;
+        for (PendingTransfer<?> pending : batch) {
+            if (pending.replay) {
+                replayed++;
+                pending.runAlone();
+            } else {
+                pending.complete();
+            }
+        }
+        log.debug("Group commit | transfers={} | replayedAlone={}", batch.size(), replayed);
+    }
+
+    private void runBehindSavepoint(Connection connection, PendingTransfer<?> pending) {
+        Savepoint savepoint;
+        try {
+            savepoint = connection.setSavepoint();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot create savepoint", e);
+        }
+        List<TransactionSynchronization> registeredBefore = TransactionSynchronizationManager.getSynchronizations();
+        // The request's statements, its flush included, count against its own budget
+        StatementCounter.Count previous = StatementCounter.attach(pending.statements);
+        try {
+            pending.runInBatch();
+            entityManager.flush();
+            connection.releaseSavepoint(savepoint);
+        } catch (RuntimeException | SQLException e) {
+            try {
+                connection.rollback(savepoint);
+            } catch (SQLException rollbackError) {
+                throw new IllegalStateException("Cannot roll back to savepoint", rollbackError);
+            }
+            // Drop any entity state the failed request left in the shared persistence context
+            entityManager.clear();
+            discardSynchronizationsSince(registeredBefore);
+            if (isRetryable(e)) {
+                pending.replay = true;
+            } else {
+                pending.fail(e);
+            }
+        } finally {
+            StatementCounter.attach(previous);
+        }
+    }
+
+    // After-commit hooks of a request rolled back to its savepoint (idempotency record, cache
+    // eviction) must not run when the batch commits: only those registered before it are kept
+    private static void discardSynchronizationsSince(List<TransactionSynchronization> registeredBefore) {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        registeredBefore.forEach(TransactionSynchronizationManager::registerSynchronization);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && RETRYABLE_SQL_STATES.contains(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PendingTransfer<T> {
+
+        private final Supplier<T> work;
+        // Statement count of the request that queued it (QueryBudgetFilter), continued on the committer
+        private final StatementCounter.Count statements = StatementCounter.current();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Throwable failure;
+        private boolean replay;
+
+        private PendingTransfer(Supplier<T> work) {
+            this.work = work;
+        }
+
+        private void runInBatch() {
+            value = work.get();
+        }
+
+        private void fail(Throwable error) {
+            failure = error;
+        }
+
+        // Outcome only becomes visible to the caller once the batch has committed
+        private void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        private void runAlone() {
+            StatementCounter.Count previous = StatementCounter.attach(statements);
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                StatementCounter.attach(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.entity.WalletTransaction;
+
+import java.math.BigDecimal;
+
+// Outcome of TransactionProcessor.processTransfer: the booked transaction plus both new balances
+public record TransferResult(
+        WalletTransaction transaction,
+        BigDecimal sourceBalance,
+        BigDecimal targetBalance
+) {}
@@ -1,96 +1,105 @@
 package com.dinoventures.wallet.service;
 
-import com.dinoventures.wallet.entity.AssetType;
-import com.dinoventures.wallet.entity.User;
-import com.dinoventures.wallet.entity.Wallet;
-import com.dinoventures.wallet.repository.AssetTypeRepository;
-import com.dinoventures.wallet.repository.UserRepository;
+import com.dinoventures.wallet.repository.SeedRepository;
+import com.dinoventures.wallet.repository.SeedRepository.SystemWalletSeed;
 import com.dinoventures.wallet.repository.WalletRepository;
+import com.dinoventures.wallet.utils.Ids;
 import com.dinoventures.wallet.utils.NullSafeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Seeds assets, test users and the sharded system wallets at startup. Each table is
+ * one set-based statement that inserts only what is missing, all in one transaction
+ * under an advisory lock, so a restart of an already seeded database costs a handful
+ * of statements whatever the shard count.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class WalletDataInitializer {
 
-    private final AssetTypeRepository assetTypeRepository;
-    private final UserRepository userRepository;
+    // code -> display name
+    private static final Map<String, String> ASSETS = Map.of("GOLD", "Gold Coins", "DIAMONDS", "Diamonds");
+    private static final List<String> USERS = List.of("Test User 1", "Test User 2", "Test User 3");
+    // Seed balance of each logical wallet, split evenly across its shards (shard 0 takes the remainder)
+    private static final Map<String, BigDecimal> SYSTEM_WALLETS = Map.of(
+            "TREASURY", BigDecimal.valueOf(1000000),
+            "BONUS", BigDecimal.valueOf(50000),
+            "REVENUE", BigDecimal.ZERO);
+
+    private final SeedRepository seedRepository;
     private final WalletRepository walletRepository;
+    private final SystemWalletRouter systemWalletRouter;
+    private final ReferenceDataCache referenceDataCache;
+    private final TransactionTemplate transactionTemplate;
 
     @EventListener(ApplicationReadyEvent.class)
     public void initialize() {
         log.info(" Initializing wallet data...");
+        long started = System.nanoTime();
 
-        // 1. Assets (safe)
-        createAssetIfMissing("GOLD", "Gold Coins");
-        createAssetIfMissing("DIAMONDS", "Diamonds");
+        transactionTemplate.executeWithoutResult(status -> {
+            seedRepository.lock();
+            LocalDateTime now = NullSafeUtils.safeNow();
 
-        // 2. Users
-        createUserIfMissing("Test User 1");
-        createUserIfMissing("Test User 2");
-        createUserIfMissing("Test User 3");
+            // 1. Assets
+            List<String> codes = List.copyOf(ASSETS.keySet());
+            int assets = seedRepository.insertMissingAssets(newIds(codes.size()), codes,
+                    codes.stream().map(ASSETS::get).toList(), now);
 
-        // 3. System Wallets
-        createSystemWallets("GOLD");
-        createSystemWallets("DIAMONDS");
+            // 2. Users
+            int users = seedRepository.insertMissingUsers(newIds(USERS.size()), USERS, now);
 
-        log.info(" Data initialization complete!");
-    }
+            // 3. System wallets (sharded)
+            int legacy = walletRepository.assignLegacySystemWalletsToShardZero();
+            if (legacy > 0) {
+                log.info("Assigned {} legacy system wallets to shard 0", legacy);
+            }
+            int wallets = seedRepository.insertMissingSystemWallets(systemWalletSeeds(codes), now);
 
-    private void createAssetIfMissing(String code, String name) {
-        if (assetTypeRepository.findByCode(code).isEmpty()) {
-            AssetType asset = AssetType.builder()
-                    .code(code)
-                    .displayName(name)
-                    .createdAt(NullSafeUtils.safeNow())
-                    .build();
-            assetTypeRepository.save(asset);
-            log.info("Created asset: {}", code);
-        }
-    }
+            log.info("Seeded | assets={} | users={} | systemWallets={} | shards={}",
+                    assets, users, wallets, systemWalletRouter.getShardCount());
+        });
 
-    private void createUserIfMissing(String name) {
-        if (userRepository.count() < 3) {  // Only create if we need more users
-            User user = User.builder()
-                    .name(name)
-                    .createdAt(NullSafeUtils.safeNow())
-                    .build();
-            try {
-                userRepository.save(user);
-                log.info("Created user: {}", name);
-            } catch (Exception e) {
-                log.warn("User {} already exists or conflict, skipping", name);
-            }
-        }
-    }
+        // 4. Reference cache (assets, users, system wallet shards)
+        referenceDataCache.warmUp();
 
-    private void createSystemWallets(String assetCode) {
-        AssetType asset = assetTypeRepository.findByCode(assetCode)
-                .orElseThrow(() -> new RuntimeException("Asset not found: " + assetCode));
+        log.info(" Data initialization complete in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
 
-        createSystemWallet(asset, "TREASURY", BigDecimal.valueOf(1000000));
-        createSystemWallet(asset, "BONUS", BigDecimal.valueOf(50000));
-        createSystemWallet(asset, "REVENUE", BigDecimal.ZERO);
+    private List<SystemWalletSeed> systemWalletSeeds(List<String> assetCodes) {
+        List<SystemWalletSeed> seeds = new ArrayList<>();
+        for (String assetCode : assetCodes) {
+            SYSTEM_WALLETS.forEach((type, balance) -> {
+                int shards = systemWalletRouter.getShardCount();
+                BigDecimal share = balance.divideToIntegralValue(BigDecimal.valueOf(shards));
+                BigDecimal remainder = balance.subtract(share.multiply(BigDecimal.valueOf(shards)));
+                for (int shard = 0; shard < shards; shard++) {
+                    seeds.add(new SystemWalletSeed(Ids.next(), assetCode, type, shard,
+                            shard == 0 ? share.add(remainder) : share));
+                }
+            });
+        }
+        return seeds;
     }
 
-    private void createSystemWallet(AssetType asset, String type, BigDecimal balance) {
-        if (walletRepository.findByOwnerUserIsNullAndAssetTypeAndWalletType(asset, type).isEmpty()) {
-            Wallet wallet = Wallet.builder()
-                    .assetType(asset)
-                    .walletType(type)
-                    .balance(balance)
-                    .createdAt(NullSafeUtils.safeNow())
-                    .updatedAt(NullSafeUtils.safeNow())
-                    .build();
-            walletRepository.save(wallet);
-            log.info("Created {} wallet for {}: {}", type, asset.getCode(), balance);
+    private static List<UUID> newIds(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(Ids.next());
         }
+        return ids;
     }
 }
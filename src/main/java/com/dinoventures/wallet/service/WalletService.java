@@ -1,135 +1,286 @@
 package com.dinoventures.wallet.service;
 
 import com.dinoventures.wallet.dto.*;
+import com.dinoventures.wallet.engine.BalanceEngine;
 import com.dinoventures.wallet.entity.*;
 import com.dinoventures.wallet.exception.ConflictException;
 import com.dinoventures.wallet.exception.ResourceNotFoundException;
 import com.dinoventures.wallet.exception.ValidationException;
 import com.dinoventures.wallet.repository.*;
+import com.dinoventures.wallet.utils.KeysetCursor;
 import com.dinoventures.wallet.utils.NullSafeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WalletService {
 
-    private final UserRepository userRepository;
-    private final AssetTypeRepository assetTypeRepository;
     private final WalletRepository walletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
     private final TransactionProcessor transactionProcessor;
-    private final EntityManager entityManager;  // 🔧 ADD THIS
+    private final SystemWalletRouter systemWalletRouter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final ReferenceDataCache referenceDataCache;
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final TransferMetrics transferMetrics;
+    private final BalanceEngine balanceEngine;
+    private final ReadRouting readRouting;
+    private final BalanceCache balanceCache;
+
+    @Value("${wallet.history.max-page-size:200}")
+    private int maxHistoryPageSize;
 
     @Transactional
     public TopUpResponse topUp(TopUpRequest request) {
-        log.info("Top-up | user={} asset={} amt={} key={}",
-                request.userId(), request.assetCode(), request.amount(), request.idempotencyKey());
+        return topUp(request, transactionProcessor::processTransfer);
+    }
+
+    // Assets in the balance engine: no surrounding transaction, the engine's journal batch is the transaction
+    public TopUpResponse topUpViaEngine(TopUpRequest request) {
+        return topUp(request, balanceEngine::transfer);
+    }
+
+    private TopUpResponse topUp(TopUpRequest request, TransferExecutor executor) {
+        if (log.isInfoEnabled()) {
+            log.info("Top-up | user={} asset={} amt={} key={}",
+                    request.userId(), request.assetCode(), request.amount(), request.idempotencyKey());
+        }
 
         validateTopUpRequest(request);
         checkIdempotency(request.idempotencyKey(), "TOP_UP");
 
+        long lookupStarted = System.nanoTime();
         User user = findUserOrThrow(request.userId());
         AssetType asset = findAssetOrThrow(request.assetCode());
 
         Wallet userWallet = getOrCreateUserWallet(user, asset);
-        Wallet treasuryWallet = getSystemWalletOrThrow(asset, "TREASURY");
+        List<Wallet> treasuryShards = systemWalletRouter.route(asset, "TREASURY", user);
+        transferMetrics.recordStage("TOP_UP", TransferMetrics.STAGE_WALLET_LOOKUP, lookupStarted);
 
         LocalDateTime now = NullSafeUtils.safeNow();
-        WalletTransaction tx = transactionProcessor.processTransfer(
-                "TOP_UP", treasuryWallet, userWallet, request.amount(),
-                request.idempotencyKey(), user, asset, now);
+        TransferResult result;
+        try {
+            result = executor.transfer(
+                    "TOP_UP", treasuryShards, userWallet, request.amount(),
+                    request.idempotencyKey(), user, asset, now);
+        } finally {
+            // Rejected transfers leave a FAILED row in the history too
+            readRouting.recordWrite(user.getId());
+        }
 
-        //  refresh from database to get updated balance
-        entityManager.refresh(userWallet);
+        // user wallet is the credited side; its new balance comes back with the transfer
+        WalletTransaction tx = result.transaction();
+        BigDecimal newBalance = result.targetBalance();
 
-        log.info("Top-up success | tx={} user={} balance={}", tx.getId(), user.getId(), userWallet.getBalance());
+        if (log.isInfoEnabled()) {
+            log.info("Top-up success | tx={} user={} balance={}", tx.getId(), user.getId(), newBalance);
+        }
 
-        return mapToTopUpResponse(tx, userWallet);
+        return mapToTopUpResponse(tx, newBalance);
     }
 
     @Transactional
     public BonusResponse bonus(BonusRequest request) {
-        log.info("Bonus | user={} asset={} amt={} reason={} key={}",
-                request.userId(), request.assetCode(), request.amount(),
-                request.reason(), request.idempotencyKey());
+        return bonus(request, transactionProcessor::processTransfer);
+    }
+
+    // Assets in the balance engine: no surrounding transaction, the engine's journal batch is the transaction
+    public BonusResponse bonusViaEngine(BonusRequest request) {
+        return bonus(request, balanceEngine::transfer);
+    }
+
+    private BonusResponse bonus(BonusRequest request, TransferExecutor executor) {
+        if (log.isInfoEnabled()) {
+            log.info("Bonus | user={} asset={} amt={} reason={} key={}",
+                    request.userId(), request.assetCode(), request.amount(),
+                    request.reason(), request.idempotencyKey());
+        }
 
         validateBonusRequest(request);
         checkIdempotency(request.idempotencyKey(), "BONUS");
 
+        long lookupStarted = System.nanoTime();
         User user = findUserOrThrow(request.userId());
         AssetType asset = findAssetOrThrow(request.assetCode());
 
         Wallet userWallet = getOrCreateUserWallet(user, asset);
-        Wallet bonusWallet = getSystemWalletOrThrow(asset, "BONUS");
+        List<Wallet> bonusShards = systemWalletRouter.route(asset, "BONUS", user);
+        transferMetrics.recordStage("BONUS", TransferMetrics.STAGE_WALLET_LOOKUP, lookupStarted);
 
         LocalDateTime now = NullSafeUtils.safeNow();
-        WalletTransaction tx = transactionProcessor.processTransfer(
-                "BONUS", bonusWallet, userWallet, request.amount(),
-                request.idempotencyKey(), user, asset, now);
+        TransferResult result;
+        try {
+            result = executor.transfer(
+                    "BONUS", bonusShards, userWallet, request.amount(),
+                    request.idempotencyKey(), user, asset, now);
+        } finally {
+            readRouting.recordWrite(user.getId());
+        }
 
-        //  refresh from database to get updated balance
-        entityManager.refresh(userWallet);
+        // user wallet is the credited side; its new balance comes back with the transfer
+        WalletTransaction tx = result.transaction();
+        BigDecimal newBalance = result.targetBalance();
 
-        log.info("Bonus success | tx={} user={} balance={}", tx.getId(), user.getId(), userWallet.getBalance());
+        if (log.isInfoEnabled()) {
+            log.info("Bonus success | tx={} user={} balance={}", tx.getId(), user.getId(), newBalance);
+        }
 
-        return mapToBonusResponse(tx, userWallet);
+        return mapToBonusResponse(tx, newBalance);
     }
 
     @Transactional
     public SpendResponse spend(SpendRequest request) {
-        log.info("Spend | user={} asset={} amt={} ref={} key={}",
-                request.userId(), request.assetCode(), request.amount(),
-                request.reference(), request.idempotencyKey());
+        return spend(request, transactionProcessor::processTransfer);
+    }
+
+    // Assets in the balance engine: no surrounding transaction, the engine's journal batch is the transaction
+    public SpendResponse spendViaEngine(SpendRequest request) {
+        return spend(request, balanceEngine::transfer);
+    }
+
+    private SpendResponse spend(SpendRequest request, TransferExecutor executor) {
+        if (log.isInfoEnabled()) {
+            log.info("Spend | user={} asset={} amt={} ref={} key={}",
+                    request.userId(), request.assetCode(), request.amount(),
+                    request.reference(), request.idempotencyKey());
+        }
 
         validateSpendRequest(request);
         checkIdempotency(request.idempotencyKey(), "SPEND");
 
+        long lookupStarted = System.nanoTime();
         User user = findUserOrThrow(request.userId());
         AssetType asset = findAssetOrThrow(request.assetCode());
 
         Wallet userWallet = getOrCreateUserWallet(user, asset);
-        Wallet revenueWallet = getSystemWalletOrThrow(asset, "REVENUE");
+        Wallet revenueWallet = systemWalletRouter.route(asset, "REVENUE", user).get(0);
+        transferMetrics.recordStage("SPEND", TransferMetrics.STAGE_WALLET_LOOKUP, lookupStarted);
 
         LocalDateTime now = NullSafeUtils.safeNow();
-        WalletTransaction tx = transactionProcessor.processTransfer(
-                "SPEND", userWallet, revenueWallet, request.amount(),
-                request.idempotencyKey(), user, asset, now);
+        TransferResult result;
+        try {
+            result = executor.transfer(
+                    "SPEND", List.of(userWallet), revenueWallet, request.amount(),
+                    request.idempotencyKey(), user, asset, now);
+        } finally {
+            readRouting.recordWrite(user.getId());
+        }
 
-        // refresh from database to get updated balance
-        entityManager.refresh(userWallet);
+        // user wallet is the debited side; its new balance comes back with the transfer
+        WalletTransaction tx = result.transaction();
+        BigDecimal newBalance = result.sourceBalance();
 
-        log.info("Spend success | tx={} user={} balance={}", tx.getId(), user.getId(), userWallet.getBalance());
+        if (log.isInfoEnabled()) {
+            log.info("Spend success | tx={} user={} balance={}", tx.getId(), user.getId(), newBalance);
+        }
 
-        return mapToSpendResponse(tx, userWallet);
+        return mapToSpendResponse(tx, newBalance);
     }
 
+    @Transactional
+    public TransferResponse transfer(TransferRequest request) {
+        return transfer(request, transactionProcessor::processPeerTransfer);
+    }
+
+    // Assets in the balance engine: one writer per asset, so there is no lock order to keep
+    public TransferResponse transferViaEngine(TransferRequest request) {
+        return transfer(request, balanceEngine::transfer);
+    }
+
+    private TransferResponse transfer(TransferRequest request, TransferExecutor executor) {
+        if (log.isInfoEnabled()) {
+            log.info("Transfer | from={} to={} asset={} amt={} ref={} key={}",
+                    request.fromUserId(), request.toUserId(), request.assetCode(), request.amount(),
+                    request.reference(), request.idempotencyKey());
+        }
+
+        validateTransferRequest(request);
+        checkIdempotency(request.idempotencyKey(), "TRANSFER");
+
+        long lookupStarted = System.nanoTime();
+        User sender = findUserOrThrow(request.fromUserId());
+        User recipient = findUserOrThrow(request.toUserId());
+        if (sender.getId().equals(recipient.getId())) throw new ValidationException("Cannot transfer to yourself");
+        AssetType asset = findAssetOrThrow(request.assetCode());
+
+        Wallet senderWallet = getOrCreateUserWallet(sender, asset);
+        Wallet recipientWallet = getOrCreateUserWallet(recipient, asset);
+        transferMetrics.recordStage("TRANSFER", TransferMetrics.STAGE_WALLET_LOOKUP, lookupStarted);
+
+        LocalDateTime now = NullSafeUtils.safeNow();
+        TransferResult result;
+        try {
+            result = executor.transfer(
+                    "TRANSFER", List.of(senderWallet), recipientWallet, request.amount(),
+                    request.idempotencyKey(), sender, asset, now);
+        } finally {
+            readRouting.recordWrite(sender.getId());
+            readRouting.recordWrite(recipient.getId());
+        }
+        // the executor evicts the sender (the transaction's user); the recipient is evicted here
+        balanceCache.evictAfterCommit(recipient.getId());
+
+        WalletTransaction tx = result.transaction();
+
+        if (log.isInfoEnabled()) {
+            log.info("Transfer success | tx={} from={} to={} sender_balance={} recipient_balance={}",
+                    tx.getId(), sender.getId(), recipient.getId(), result.sourceBalance(), result.targetBalance());
+        }
+
+        return mapToTransferResponse(tx, recipient, result.sourceBalance(), result.targetBalance());
+    }
+
+    @Transactional(readOnly = true)
     public UserBalancesResponse getUserBalances(String userIdStr) {
         log.info("Get balances | user={}", userIdStr);
         User user = findUserOrThrow(userIdStr);
 
-        List<Wallet> wallets = walletRepository.findAllByOwnerUser(user);
-        List<UserAssetBalance> balances = wallets.stream()
-                .map(w -> new UserAssetBalance(
-                        w.getAssetType().getCode(),
-                        NullSafeUtils.safeGetBigDecimal(w.getBalance())
-                ))
-                .collect(Collectors.toList());
+        List<UserAssetBalance> balances = walletRepository.findBalancesByUserId(user.getId());
 
         log.info("Balances fetched | user={} | count={}", user.getId(), balances.size());
         return new UserBalancesResponse(user.getId().toString(), balances);
     }
 
+    // Newest first; pass the previous page's nextCursor to continue after its last row
+    @Transactional(readOnly = true)
+    public TransactionHistoryResponse getTransactionHistory(String userIdStr, String assetCode,
+                                                            String transactionType, String cursor, int limit) {
+        log.info("Get history | user={} asset={} type={} limit={}", userIdStr, assetCode, transactionType, limit);
+        User user = findUserOrThrow(userIdStr);
+
+        if (limit <= 0 || limit > maxHistoryPageSize) {
+            throw new ValidationException("Limit must be between 1 and " + maxHistoryPageSize);
+        }
+        KeysetCursor.Position after = KeysetCursor.decode(cursor);
+        if (after == null && !NullSafeUtils.isNullOrEmpty(cursor)) {
+            throw new ValidationException("Invalid cursor");
+        }
+        UUID assetTypeId = NullSafeUtils.isNullOrEmpty(assetCode) ? null : findAssetOrThrow(assetCode).getId();
+        String type = NullSafeUtils.isNullOrEmpty(transactionType) ? null : transactionType.toUpperCase();
+
+        // One extra row tells whether another page exists
+        List<TransactionSummary> rows = transactionHistoryRepository.findPage(
+                user.getId(), assetTypeId, type, after, limit + 1);
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            TransactionSummary last = rows.get(limit - 1);
+            nextCursor = KeysetCursor.encode(last.createdAt(), last.transactionId());
+        }
+
+        log.info("History fetched | user={} | count={} | more={}", user.getId(), rows.size(), nextCursor != null);
+        return new TransactionHistoryResponse(user.getId().toString(), List.copyOf(rows), nextCursor);
+    }
+
     // === SHARED VALIDATION ===
 
     private void validateTopUpRequest(TopUpRequest request) {
@@ -144,6 +295,11 @@ public class WalletService {
         validateCommonRequest(request.userId(), request.assetCode(), request.amount(), request.idempotencyKey());
     }
 
+    private void validateTransferRequest(TransferRequest request) {
+        validateCommonRequest(request.fromUserId(), request.assetCode(), request.amount(), request.idempotencyKey());
+        if (NullSafeUtils.isNullOrEmpty(request.toUserId())) throw new ValidationException("Recipient user ID required");
+    }
+
     private void validateCommonRequest(String userId, String assetCode, BigDecimal amount, String idempotencyKey) {
         if (NullSafeUtils.isNullOrEmpty(userId)) throw new ValidationException("User ID required");
         if (NullSafeUtils.isNullOrEmpty(assetCode)) throw new ValidationException("Asset code required");
@@ -154,36 +310,33 @@ public class WalletService {
     // === SHARED HELPERS ===
 
     private void checkIdempotency(String key, String type) {
-        WalletTransaction existing = findTransactionByIdempotencyKey(key);
-        if (existing != null) {
-            if ("SUCCESS".equalsIgnoreCase(existing.getStatus())) {
-                log.info("Idempotent {} detected | key={} | tx={}", type, key, existing.getId());
-                throw new ConflictException("Request already processed: " + key);
-            }
-            if ("FAILED".equalsIgnoreCase(existing.getStatus())) {
-                log.warn("Previous {} failed | key={}", type, key);
-                throw new ConflictException("Previous request failed: " + key);
-            }
+        String status = transferMetrics.timeStage(type, TransferMetrics.STAGE_IDEMPOTENCY_CHECK,
+                () -> idempotencyGuard.findStatus(key));
+        if (status != null) {
+            transferMetrics.idempotencyConflict(type, TransferMetrics.CONFLICT_GUARD);
+        }
+        if ("SUCCESS".equalsIgnoreCase(status)) {
+            log.info("Idempotent {} detected | key={}", type, key);
+            throw new ConflictException("Request already processed: " + key);
+        }
+        if ("FAILED".equalsIgnoreCase(status)) {
+            log.warn("Previous {} failed | key={}", type, key);
+            throw new ConflictException("Previous request failed: " + key);
         }
     }
 
     private User findUserOrThrow(String userIdStr) {
         UUID userId = NullSafeUtils.safeParseUUID(userIdStr);
         if (userId == null) throw new ValidationException("Invalid userId format");
-        return userRepository.findById(userId)
+        return referenceDataCache.findUser(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + userIdStr));
     }
 
     private AssetType findAssetOrThrow(String assetCode) {
-        return assetTypeRepository.findByCode(assetCode)
+        return referenceDataCache.findAsset(assetCode)
                 .orElseThrow(() -> new ValidationException("Unknown asset: " + assetCode));
     }
 
-    private WalletTransaction findTransactionByIdempotencyKey(String key) {
-        if (NullSafeUtils.isNullOrEmpty(key)) return null;
-        return walletTransactionRepository.findByIdempotencyKey(key).orElse(null);
-    }
-
     private Wallet getOrCreateUserWallet(User user, AssetType assetType) {
         return walletRepository.findByOwnerUserAndAssetTypeAndWalletType(user, assetType, "USER")
                 .orElseGet(() -> {
@@ -195,36 +348,44 @@ public class WalletService {
                             .createdAt(NullSafeUtils.safeNow())
                             .updatedAt(NullSafeUtils.safeNow())
                             .build();
-                    return walletRepository.save(wallet);
+                    // flushed right away: the transfer statement credits/debits it by id
+                    Wallet created = walletRepository.saveAndFlush(wallet);
+                    // a new zero-balance asset shows up even if the transfer then fails
+                    balanceCache.evictAfterCommit(user.getId());
+                    return created;
                 });
     }
 
-    private Wallet getSystemWalletOrThrow(AssetType assetType, String walletType) {
-        return walletRepository.findByOwnerUserIsNullAndAssetTypeAndWalletType(assetType, walletType)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "System wallet missing: asset=" + assetType.getCode() + " type=" + walletType));
-    }
-
     // === MAPPING ===
+    // package-private: measured directly by the JMH benchmarks (benchmarks/)
 
-    private TopUpResponse mapToTopUpResponse(WalletTransaction tx, Wallet userWallet) {
+    static TopUpResponse mapToTopUpResponse(WalletTransaction tx, BigDecimal newBalance) {
         return new TopUpResponse(
                 tx.getId(), tx.getUser().getId().toString(), tx.getAssetType().getCode(),
-                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(userWallet.getBalance())
+                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(newBalance)
         );
     }
 
-    private BonusResponse mapToBonusResponse(WalletTransaction tx, Wallet userWallet) {
+    static BonusResponse mapToBonusResponse(WalletTransaction tx, BigDecimal newBalance) {
         return new BonusResponse(
                 tx.getId(), tx.getUser().getId().toString(), tx.getAssetType().getCode(),
-                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(userWallet.getBalance())
+                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(newBalance)
         );
     }
 
-    private SpendResponse mapToSpendResponse(WalletTransaction tx, Wallet userWallet) {
+    static SpendResponse mapToSpendResponse(WalletTransaction tx, BigDecimal newBalance) {
         return new SpendResponse(
                 tx.getId(), tx.getUser().getId().toString(), tx.getAssetType().getCode(),
-                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(userWallet.getBalance())
+                tx.getAmount(), tx.getStatus(), NullSafeUtils.safeGetBigDecimal(newBalance)
+        );
+    }
+
+    static TransferResponse mapToTransferResponse(WalletTransaction tx, User recipient,
+                                                  BigDecimal senderBalance, BigDecimal recipientBalance) {
+        return new TransferResponse(
+                tx.getId(), tx.getUser().getId().toString(), recipient.getId().toString(),
+                tx.getAssetType().getCode(), tx.getAmount(), tx.getStatus(),
+                NullSafeUtils.safeGetBigDecimal(senderBalance), NullSafeUtils.safeGetBigDecimal(recipientBalance)
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package com.dinoventures.wallet.utils;
+
+import java.util.UUID;
+
+// Strategy for client-side primary keys (entities and the transfer statement share it via Ids)
+@FunctionalInterface
+public interface IdGenerator {
+
+    UUID nextId();
+}
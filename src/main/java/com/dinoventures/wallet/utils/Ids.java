@@ -0,0 +1,21 @@
+package com.dinoventures.wallet.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.UUID;
+
+// Single entry point for new primary keys; Hibernate instantiates its generators itself,
+// so the active strategy is held statically and swapped by PersistenceTuningConfig
+@UtilityClass
+public class Ids {
+
+    private volatile IdGenerator generator = new UuidV7Generator();
+
+    public UUID next() {
+        return generator.nextId();
+    }
+
+    public void use(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dinoventures.wallet.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque page token for (created_at, id) keyset pagination: base64url("createdAt|id")
+@UtilityClass
+public class KeysetCursor {
+
+    public record Position(LocalDateTime createdAt, UUID id) {}
+
+    public String encode(LocalDateTime createdAt, UUID id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null for a missing or malformed token
+    public Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                return null;
+            }
+            UUID id = NullSafeUtils.safeParseUUID(raw.substring(separator + 1));
+            return id == null ? null : new Position(LocalDateTime.parse(raw.substring(0, separator)), id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dinoventures.wallet.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDs in the RFC 9562 version 7 layout.
+ *
+ * 48-bit Unix milliseconds, then a 12-bit counter (rand_a) that keeps IDs from one
+ * JVM strictly increasing inside the same millisecond, then 62 random bits.
+ * New rows therefore land on the right-most B-tree pages instead of random ones.
+ */
+public class UuidV7Generator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_SEED_MASK = 0x7FF; // leave headroom before the counter carries
+
+    // (unix millis << 12) | counter of the last issued ID
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Override
+    public UUID nextId() {
+        long now = System.currentTimeMillis();
+        long previous;
+        long next;
+        do {
+            previous = lastTimestampAndCounter.get();
+            if (now > previous >>> COUNTER_BITS) {
+                next = (now << COUNTER_BITS) | (ThreadLocalRandom.current().nextLong() & COUNTER_SEED_MASK);
+            } else {
+                // Same millisecond (or clock stepped back): bump the counter, carrying into the timestamp
+                next = previous + 1;
+            }
+        } while (!lastTimestampAndCounter.compareAndSet(previous, next));
+
+        long millis = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        long mostSigBits = (millis << 16) | 0x7000L | counter;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
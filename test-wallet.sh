@@ -41,7 +41,8 @@ check_user_balance() {
 
 check_system_balance() {
   local asset="$1" wallet_type="$2"
-  db_query "SELECT COALESCE(balance::text,'0.00') FROM wallets w JOIN asset_types a ON w.asset_type_id=a.id WHERE w.wallet_type='$wallet_type' AND a.code='$asset'"
+  # System wallets are sharded: report the logical balance (sum of all shards)
+  db_query "SELECT COALESCE(SUM(balance)::text,'0.00') FROM wallets w JOIN asset_types a ON w.asset_type_id=a.id WHERE w.owner_user_id IS NULL AND w.wallet_type='$wallet_type' AND a.code='$asset'"
 }
 
 # 🚀 FIXED: Decimal-safe numeric comparison
@@ -81,10 +82,10 @@ echo "✅ BOOTSTRAP ✓"
 log_step "2️⃣ FACTORY RESET"
 db_exec "UPDATE wallets SET balance='0.00' WHERE wallet_type='USER'"
 db_exec "UPDATE wallets SET balance='0.00' WHERE wallet_type='REVENUE'"
-db_exec "UPDATE wallets SET balance='1000000.00' WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
-db_exec "UPDATE wallets SET balance='50000.00' WHERE wallet_type='BONUS' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
-db_exec "UPDATE wallets SET balance='1000000.00' WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$DIAMONDS_CODE')"
-db_exec "UPDATE wallets SET balance='50000.00' WHERE wallet_type='BONUS' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$DIAMONDS_CODE')"
+db_exec "UPDATE wallets SET balance=CASE WHEN COALESCE(shard_index,0)=0 THEN '1000000.00' ELSE '0.00' END WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
+db_exec "UPDATE wallets SET balance=CASE WHEN COALESCE(shard_index,0)=0 THEN '50000.00' ELSE '0.00' END WHERE wallet_type='BONUS' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
+db_exec "UPDATE wallets SET balance=CASE WHEN COALESCE(shard_index,0)=0 THEN '1000000.00' ELSE '0.00' END WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$DIAMONDS_CODE')"
+db_exec "UPDATE wallets SET balance=CASE WHEN COALESCE(shard_index,0)=0 THEN '50000.00' ELSE '0.00' END WHERE wallet_type='BONUS' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$DIAMONDS_CODE')"
 db_exec "DELETE FROM ledger_entries"
 db_exec "DELETE FROM wallet_transactions"
 echo "💰 Treasury: $(check_system_balance "$GOLD_CODE" "TREASURY") ✓"
@@ -172,7 +173,7 @@ echo "✅ SINGLE_USER_RACE ✓"
 
 # === 7. TREASURY RACE ===
 log_step "7️⃣ ⚔️ RACE #2: 30x5 vs 100 treasury"
-db_exec "UPDATE wallets SET balance='100.00' WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
+db_exec "UPDATE wallets SET balance=CASE WHEN COALESCE(shard_index,0)=0 THEN '100.00' ELSE '0.00' END WHERE wallet_type='TREASURY' AND asset_type_id=(SELECT id FROM asset_types WHERE code='$GOLD_CODE')"
 echo "💰 30 requests × 5 GOLD = 150 vs 100 treasury"
 echo "⏱️ START: $(date +'%H:%M:%S.%3N')"
 > /tmp/race2.log
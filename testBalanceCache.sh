@@ -0,0 +1,70 @@
+#!/bin/bash
+# Balance cache check: ETag / 304 on GET /balances, invalidation on commit, hit ratio
+# Usage: ./testBalanceCache.sh [polls]
+
+POLLS=${1:-200}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+
+echo "======================================================================"
+echo "🗃  BALANCE CACHE | polls=$POLLS"
+echo "======================================================================"
+
+cache_requests() {
+    curl -s "$BASE_URL/actuator/metrics/wallet.balance.cache.requests?tag=result:$1" \
+        | jq -r '.measurements[0].value // 0' | cut -d. -f1
+}
+
+etag() {
+    curl -s -D - -o /dev/null "$BASE_URL/api/v1/wallets/$USER_ID/balances" \
+        | grep -i '^etag:' | cut -d' ' -f2 | tr -d '\r'
+}
+
+status_for() {
+    curl -s -o /dev/null -w '%{http_code}' -H "If-None-Match: $1" "$BASE_URL/api/v1/wallets/$USER_ID/balances"
+}
+
+top_up() {
+    curl -s -X POST "$BASE_URL/api/v1/wallets/topup" -H "Content-Type: application/json" \
+        -d "{\"userId\":\"$USER_ID\",\"assetCode\":\"GOLD\",\"amount\":1,\"idempotencyKey\":\"cache-$(date +%s%N)\"}" \
+        | jq -r '.data.newBalance'
+}
+
+pass() { echo "   ✅ $1"; }
+fail() { echo "   ❌ $1"; FAILED=1; }
+
+USER_ID=$(curl -s "$BASE_URL/api/v1/test/users" | jq -r '.data[0].id')
+
+echo ""
+echo "1. Unchanged balances answer 304"
+tag=$(etag)
+[ -n "$tag" ] && pass "ETag $tag" || fail "no ETag on /balances"
+[ "$(status_for "$tag")" = "304" ] && pass "If-None-Match: $tag -> 304" || fail "expected 304"
+
+echo ""
+echo "2. A committed top-up changes the ETag"
+written=$(top_up)
+new_tag=$(etag)
+[ "$new_tag" != "$tag" ] && pass "ETag after top-up: $new_tag" || fail "ETag unchanged after top-up"
+[ "$(status_for "$tag")" = "200" ] && pass "old ETag -> 200" || fail "old ETag still answered 304"
+balance=$(curl -s "$BASE_URL/api/v1/wallets/$USER_ID/balances" \
+    | jq -r '.data.balances[] | select(.assetCode == "GOLD") | .balance')
+[ "$balance" = "$written" ] && pass "balance $balance matches the top-up" || fail "balance $balance, expected $written"
+
+echo ""
+echo "3. Polling hit ratio"
+hits_before=$(cache_requests hit)
+misses_before=$(cache_requests miss)
+start=$(date +%s%3N)
+for _ in $(seq 1 "$POLLS"); do status_for "$new_tag" >/dev/null; done
+elapsed=$(( $(date +%s%3N) - start ))
+hits=$(( $(cache_requests hit) - hits_before ))
+misses=$(( $(cache_requests miss) - misses_before ))
+echo "   $POLLS conditional polls in ${elapsed} ms | hits=$hits | misses=$misses"
+[ "$hits" -ge $(( POLLS * 9 / 10 )) ] && pass "hit ratio >= 90%" || fail "hit ratio below 90%"
+
+echo ""
+echo "Staleness: wallet.balance.cache.stale = $(curl -s "$BASE_URL/actuator/metrics/wallet.balance.cache.stale" \
+    | jq -r '.measurements[0].value // 0') (sampled hits re-read from the primary)"
+
+echo ""
+[ -z "$FAILED" ] && echo "✅ balance cache OK" || { echo "❌ balance cache checks failed"; exit 1; }
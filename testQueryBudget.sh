@@ -0,0 +1,95 @@
+#!/bin/bash
+# Statement budgets: SQL statements per request on the warm path of each endpoint
+# Usage: ./testQueryBudget.sh
+# Run against an otherwise idle instance: counts are read as deltas of wallet.http.statements.
+# Statements are counted at the JDBC layer, group-committed work included; requests of
+# balance-engine assets (WALLET_ENGINE_ASSETS) are not attributable and are reported as skipped.
+# Counting is off by default: the app container is recreated with WALLET_QUERY_BUDGET_ENABLED=true
+# for the run and recreated with the default on exit (RESTART=false to use an instance as it is).
+
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+# endpoint=max statements once caches are warm and wallets exist
+BUDGETS=${BUDGETS:-"balances=1 transactions=1 topup=2 bonus=2 spend=2 transfer=4"}
+RESTART=${RESTART:-true}
+
+echo "======================================================================"
+echo "🧮 STATEMENT BUDGETS | $BUDGETS"
+echo "======================================================================"
+
+wait_ready() {
+    for _ in $(seq 1 60); do
+        curl -sf "$BASE_URL/api/v1/wallets/health" >/dev/null && return 0
+        sleep 2
+    done
+    echo "❌ service did not come up" && exit 1
+}
+
+if [ "$RESTART" = "true" ]; then
+    WALLET_QUERY_BUDGET_ENABLED=true docker compose up -d --force-recreate app >/dev/null 2>&1
+    trap 'WALLET_QUERY_BUDGET_ENABLED=false docker compose up -d --force-recreate app >/dev/null 2>&1' EXIT
+    wait_ready
+fi
+
+statements_total() {
+    curl -s "$BASE_URL/actuator/metrics/wallet.http.statements?tag=endpoint:$1" \
+        | jq -r '[.measurements[]? | select(.statistic == "TOTAL") | .value][0] // 0' | cut -d. -f1
+}
+
+skipped_total() {
+    curl -s "$BASE_URL/actuator/metrics/wallet.http.statements.skipped?tag=endpoint:$1" \
+        | jq -r '[.measurements[]? | select(.statistic == "COUNT") | .value][0] // 0' | cut -d. -f1
+}
+
+post() {
+    curl -s -o /dev/null -X POST "$BASE_URL/api/v1/wallets/$1" -H "Content-Type: application/json" -d "$2"
+}
+
+key() {
+    echo "budget-$(date +%s%N)"
+}
+
+# One request of the endpoint (with a fresh idempotency key)
+call() {
+    case "$1" in
+        balances)     curl -s -o /dev/null "$BASE_URL/api/v1/wallets/$USER_A/balances" ;;
+        transactions) curl -s -o /dev/null "$BASE_URL/api/v1/wallets/$USER_A/transactions?limit=20" ;;
+        topup)    post topup "{\"userId\":\"$USER_A\",\"assetCode\":\"GOLD\",\"amount\":10,\"idempotencyKey\":\"$(key)\"}" ;;
+        bonus)    post bonus "{\"userId\":\"$USER_A\",\"assetCode\":\"GOLD\",\"amount\":1,\"reason\":\"budget\",\"idempotencyKey\":\"$(key)\"}" ;;
+        spend)    post spend "{\"userId\":\"$USER_A\",\"assetCode\":\"GOLD\",\"amount\":1,\"reference\":\"budget\",\"idempotencyKey\":\"$(key)\"}" ;;
+        transfer) post transfer "{\"fromUserId\":\"$USER_A\",\"toUserId\":\"$USER_B\",\"assetCode\":\"GOLD\",\"amount\":1,\"reference\":\"budget\",\"idempotencyKey\":\"$(key)\"}" ;;
+    esac
+}
+
+read -r USER_A USER_B < <(curl -s "$BASE_URL/api/v1/test/users" | jq -r '[.data[0].id, .data[1].id] | @tsv')
+[ -n "$USER_B" ] || { echo "❌ need two users: curl -X POST $BASE_URL/api/v1/test/setup"; exit 1; }
+
+call topup
+[ "$(curl -s -o /dev/null -w '%{http_code}' "$BASE_URL/actuator/metrics/wallet.http.statements")" = "200" ] \
+    || { echo "❌ statement counting is off (WALLET_QUERY_BUDGET_ENABLED)"; exit 1; }
+
+for budget in $BUDGETS; do
+    endpoint=${budget%%=*}
+    max=${budget##*=}
+
+    # Warm the reference cache, idempotency filter and both wallets first
+    call "$endpoint"; call "$endpoint"
+    # A balance read right after a write misses the balance cache and reaches the database
+    [ "$endpoint" = "balances" ] && call topup
+
+    before=$(statements_total "$endpoint")
+    skipped_before=$(skipped_total "$endpoint")
+    call "$endpoint"
+    used=$(( $(statements_total "$endpoint") - before ))
+
+    if [ "$(skipped_total "$endpoint")" -gt "$skipped_before" ]; then
+        echo "   ⏭️  $endpoint: skipped (GOLD is a balance-engine asset, its statements are not per request)"
+    elif [ "$used" -le "$max" ]; then
+        echo "   ✅ $endpoint: $used statements (budget $max)"
+    else
+        echo "   ❌ $endpoint: $used statements (budget $max)"
+        FAILED=1
+    fi
+done
+
+echo ""
+[ -z "$FAILED" ] && echo "✅ all endpoints within budget" || { echo "❌ statement budget exceeded"; exit 1; }
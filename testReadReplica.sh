@@ -0,0 +1,82 @@
+#!/bin/bash
+# Read/write routing check against the primary + streaming replica of docker-compose.replica.yml
+# Usage: ./testReadReplica.sh [reads]
+# Pauses WAL replay on the replica to make lag visible, and always resumes it.
+# Balance reads must reach the database: start the app with WALLET_BALANCE_CACHE_ENABLED=false.
+
+READS=${1:-50}
+BASE_URL=${BASE_URL:-"http://localhost:8080"}
+REPLICA_PSQL=${REPLICA_PSQL:-"docker exec -i wallet-db-replica psql -U postgres -d wallet -Atq"}
+WINDOW_SECONDS=${WINDOW_SECONDS:-3}
+
+echo "======================================================================"
+echo "🔀 READ REPLICA ROUTING | reads=$READS"
+echo "======================================================================"
+
+reads_on() {
+    curl -s "$BASE_URL/actuator/metrics/wallet.datasource.reads?tag=target:$1" \
+        | jq -r '.measurements[0].value // 0' | cut -d. -f1
+}
+
+balance() {
+    curl -s "$BASE_URL/api/v1/wallets/$USER_ID/balances" \
+        | jq -r '.data.balances[] | select(.assetCode == "GOLD") | .balance'
+}
+
+top_up() {
+    curl -s -X POST "$BASE_URL/api/v1/wallets/topup" -H "Content-Type: application/json" \
+        -d "{\"userId\":\"$USER_ID\",\"assetCode\":\"GOLD\",\"amount\":1,\"idempotencyKey\":\"replica-$(date +%s%N)\"}" \
+        | jq -r '.data.newBalance'
+}
+
+cache_hits() {
+    curl -s "$BASE_URL/actuator/metrics/wallet.balance.cache.requests?tag=result:hit" \
+        | jq -r '.measurements[0].value // 0' | cut -d. -f1
+}
+
+pass() { echo "   ✅ $1"; }
+fail() { echo "   ❌ $1"; FAILED=1; }
+
+trap '$REPLICA_PSQL -c "SELECT pg_wal_replay_resume()" >/dev/null 2>&1' EXIT
+
+[ "$($REPLICA_PSQL -c 'SELECT pg_is_in_recovery()')" = "t" ] \
+    || { echo "❌ wallet-db-replica is not a standby (see docker-compose.replica.yml)"; exit 1; }
+[ "$(curl -s -o /dev/null -w '%{http_code}' "$BASE_URL/actuator/metrics/wallet.datasource.reads")" = "200" ] \
+    || { echo "❌ routing is off: WALLET_DATASOURCE_REPLICA_URL not set"; exit 1; }
+
+USER_ID=$(curl -s "$BASE_URL/api/v1/test/users" | jq -r '.data[0].id')
+hits_before=$(cache_hits)
+balance >/dev/null; balance >/dev/null
+[ "$(cache_hits)" = "$hits_before" ] \
+    || { echo "❌ balance cache is on: start the app with WALLET_BALANCE_CACHE_ENABLED=false"; exit 1; }
+top_up >/dev/null
+sleep "$WINDOW_SECONDS"
+
+echo ""
+echo "1. Reads without recent writes go to the replica"
+before=$(reads_on replica)
+for _ in $(seq 1 "$READS"); do balance >/dev/null; done
+after=$(reads_on replica)
+[ $((after - before)) -ge "$READS" ] && pass "$((after - before)) replica reads" || fail "replica reads: $((after - before))"
+
+echo ""
+echo "2. Read-your-writes while the replica lags"
+$REPLICA_PSQL -c "SELECT pg_wal_replay_pause()" >/dev/null
+primary_before=$(reads_on primary)
+written=$(top_up)
+read_back=$(balance)
+[ "$read_back" = "$written" ] && pass "balance right after top-up: $read_back (primary)" \
+    || fail "balance after top-up: $read_back, expected $written"
+[ $(( $(reads_on primary) - primary_before )) -ge 1 ] && pass "read pinned to primary" || fail "read not pinned"
+
+sleep "$WINDOW_SECONDS"
+stale=$(balance)
+[ "$stale" != "$written" ] && pass "after the window the (paused) replica answers: $stale" \
+    || fail "expected a stale replica read after the window"
+
+$REPLICA_PSQL -c "SELECT pg_wal_replay_resume()" >/dev/null
+sleep 1
+[ "$(balance)" = "$written" ] && pass "replica caught up after replay resumed" || fail "replica did not catch up"
+
+echo ""
+[ -z "$FAILED" ] && echo "✅ routing OK" || { echo "❌ routing checks failed"; exit 1; }
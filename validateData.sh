@@ -45,20 +45,21 @@ LEFT JOIN users u ON w.owner_user_id = u.id
 JOIN asset_types a ON w.asset_type_id = a.id
 ORDER BY w.wallet_type, a.code, u.name;"
 
-run_query "1.2 System Wallet Balances Summary" \
+run_query "1.2 System Wallet Balances Summary (logical balance across shards)" \
 "SELECT
     a.code as asset,
     w.wallet_type,
-    w.balance,
+    COUNT(*) as shards,
+    SUM(w.balance) as balance,
     CASE
-        WHEN w.wallet_type = 'TREASURY' AND w.balance < 0 THEN '❌ OVERDRAWN'
-        WHEN w.wallet_type = 'BONUS' AND w.balance < 0 THEN '❌ OVERDRAWN'
-        WHEN w.wallet_type = 'REVENUE' AND w.balance < 0 THEN '❌ IMPOSSIBLE'
+        WHEN MIN(w.balance) < 0 AND w.wallet_type = 'REVENUE' THEN '❌ IMPOSSIBLE'
+        WHEN MIN(w.balance) < 0 THEN '❌ OVERDRAWN'
         ELSE '✅'
     END as status
 FROM wallets w
 JOIN asset_types a ON w.asset_type_id = a.id
 WHERE w.owner_user_id IS NULL
+GROUP BY a.code, w.wallet_type
 ORDER BY a.code, w.wallet_type;"
 
 run_query "1.3 User Wallet Balances" \